@@ -0,0 +1,317 @@
+package berlin.yuna.clu.logic;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Values of an {@link ArgumentReader} key in insertion order <br>
+ * A single value is stored inline, more values in a growing array. Duplicates (except null) are ignored in O(1)
+ * with a hash index which is only built for keys with many values. Distinct, split and converted views are computed once per change.
+ * {@link ArgValues#set(int, String)}, {@link ArgValues#remove(int)} and {@link ArgValues#clear()} rebuild the index, iterators fail fast on
+ * concurrent changes - use {@link ArgValues#snapshot()} to read while other threads add values.
+ */
+final class ArgValues extends AbstractList<String> implements RandomAccess {
+
+    private static final int INDEX_THRESHOLD = 8;
+
+    private String first;
+    private String[] rest;
+    private volatile int size;
+    private int nulls;
+    // set() can duplicate non null values
+    private boolean duplicates;
+    private Set<String> index;
+    private List<String> distinct;
+    private final Map<String, List<String>> splits = new HashMap<>();
+    private final Map<String, Longs> longs = new HashMap<>();
+    private final Map<String, Doubles> doubles = new HashMap<>();
+
+    /**
+     * Converted distinct values - per position for index access, the convertible ones as list and array
+     */
+    static final class Longs {
+        private final List<Optional<Long>> values;
+        private final List<OptionalLong> primitives;
+        private final List<Long> list;
+        private final long[] array;
+
+        Longs(final List<String> source, final Function<String, Long> converter) {
+            final List<Optional<Long>> boxed = new ArrayList<>(source.size());
+            final List<OptionalLong> optionals = new ArrayList<>(source.size());
+            final List<Long> valid = new ArrayList<>(source.size());
+            for (String value : source) {
+                final var converted = converter.apply(value);
+                boxed.add(Optional.ofNullable(converted));
+                optionals.add(converted == null ? OptionalLong.empty() : OptionalLong.of(converted));
+                if (converted != null) {
+                    valid.add(converted);
+                }
+            }
+            this.values = boxed;
+            this.primitives = optionals;
+            this.list = Collections.unmodifiableList(valid);
+            this.array = valid.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        Optional<Long> get(final int index) {
+            return index >= 0 && index < values.size() ? values.get(index) : Optional.empty();
+        }
+
+        OptionalLong getAsLong(final int index) {
+            return index >= 0 && index < primitives.size() ? primitives.get(index) : OptionalLong.empty();
+        }
+
+        List<Long> list() {
+            return list;
+        }
+
+        long[] array() {
+            return array;
+        }
+    }
+
+    /**
+     * Converted distinct values - per position for index access, the convertible ones as list and array
+     */
+    static final class Doubles {
+        private final List<Optional<Double>> values;
+        private final List<OptionalDouble> primitives;
+        private final List<Double> list;
+        private final double[] array;
+
+        Doubles(final List<String> source, final Function<String, Double> converter) {
+            final List<Optional<Double>> boxed = new ArrayList<>(source.size());
+            final List<OptionalDouble> optionals = new ArrayList<>(source.size());
+            final List<Double> valid = new ArrayList<>(source.size());
+            for (String value : source) {
+                final var converted = converter.apply(value);
+                boxed.add(Optional.ofNullable(converted));
+                optionals.add(converted == null ? OptionalDouble.empty() : OptionalDouble.of(converted));
+                if (converted != null) {
+                    valid.add(converted);
+                }
+            }
+            this.values = boxed;
+            this.primitives = optionals;
+            this.list = Collections.unmodifiableList(valid);
+            this.array = valid.stream().mapToDouble(Double::doubleValue).toArray();
+        }
+
+        Optional<Double> get(final int index) {
+            return index >= 0 && index < values.size() ? values.get(index) : Optional.empty();
+        }
+
+        OptionalDouble getAsDouble(final int index) {
+            return index >= 0 && index < primitives.size() ? primitives.get(index) : OptionalDouble.empty();
+        }
+
+        List<Double> list() {
+            return list;
+        }
+
+        double[] array() {
+            return array;
+        }
+    }
+
+    ArgValues() {
+    }
+
+    ArgValues(final Collection<String> values) {
+        values.forEach(this::add);
+    }
+
+    /**
+     * @param value value to append
+     * @return false if the value is already present (null values are always appended)
+     */
+    @Override
+    public synchronized boolean add(final String value) {
+        if (value != null && contains(value)) {
+            return false;
+        }
+        if (size == 0) {
+            first = value;
+        } else {
+            if (rest == null) {
+                rest = new String[4];
+            } else if (size - 1 == rest.length) {
+                rest = Arrays.copyOf(rest, rest.length * 2);
+            }
+            rest[size - 1] = value;
+        }
+        if (value == null) {
+            nulls++;
+        } else if (index != null) {
+            index.add(value);
+        } else if (size + 1 > INDEX_THRESHOLD) {
+            index = new HashSet<>(this);
+            index.add(value);
+        }
+        size++;
+        changed();
+        return true;
+    }
+
+    /**
+     * @param i     position to replace
+     * @param value new value - can temporarily duplicate another value (e.g. while sorting)
+     * @return previous value
+     */
+    @Override
+    public synchronized String set(final int i, final String value) {
+        final var previous = get(i);
+        if (i == 0) {
+            first = value;
+        } else {
+            rest[i - 1] = value;
+        }
+        reindex();
+        changed();
+        return previous;
+    }
+
+    @Override
+    public synchronized String remove(final int i) {
+        final var previous = get(i);
+        if (i == 0) {
+            first = size > 1 ? rest[0] : null;
+        }
+        if (size > 1) {
+            final int from = Math.max(0, i - 1);
+            System.arraycopy(rest, from + 1, rest, from, size - 2 - from);
+            rest[size - 2] = null;
+        }
+        size--;
+        reindex();
+        changed();
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear() {
+        first = null;
+        rest = null;
+        size = 0;
+        nulls = 0;
+        index = null;
+        duplicates = false;
+        changed();
+    }
+
+    /**
+     * @return modifiable copy of the current values
+     */
+    synchronized List<String> snapshot() {
+        final List<String> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    @Override
+    public String get(final int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return i == 0 ? first : rest[i - 1];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized boolean contains(final Object value) {
+        if (value == null) {
+            return nulls > 0;
+        } else if (index != null) {
+            return index.contains(value);
+        }
+        return super.contains(value);
+    }
+
+    /**
+     * @param separator splits the values if present
+     * @return unmodifiable distinct values - cached until the next change
+     */
+    synchronized List<String> distinct(final String separator) {
+        if (separator != null) {
+            return splits.computeIfAbsent(separator, this::split);
+        } else if (distinct == null) {
+            // add() only duplicates null values
+            distinct = Collections.unmodifiableList(nulls < 2 && !duplicates ? new ArrayList<>(this) : new ArrayList<>(new LinkedHashSet<>(this)));
+        }
+        return distinct;
+    }
+
+    /**
+     * @param separator splits the values if present
+     * @param converter conversion of a value - null if not convertible
+     * @return converted distinct values - cached until the next change
+     */
+    synchronized Longs longs(final String separator, final Function<String, Long> converter) {
+        return longs.computeIfAbsent(separator, key -> new Longs(distinct(separator), converter));
+    }
+
+    /**
+     * @param separator splits the values if present
+     * @param converter conversion of a value - null if not convertible
+     * @return converted distinct values - cached until the next change
+     */
+    synchronized Doubles doubles(final String separator, final Function<String, Double> converter) {
+        return doubles.computeIfAbsent(separator, key -> new Doubles(distinct(separator), converter));
+    }
+
+    private void changed() {
+        modCount++;
+        distinct = null;
+        splits.clear();
+        longs.clear();
+        doubles.clear();
+    }
+
+    private void reindex() {
+        nulls = 0;
+        final Set<String> values = new HashSet<>();
+        duplicates = false;
+        for (int i = 0; i < size; i++) {
+            final var value = get(i);
+            if (value == null) {
+                nulls++;
+            } else {
+                duplicates |= !values.add(value);
+            }
+        }
+        index = size > INDEX_THRESHOLD ? values : null;
+    }
+
+    private List<String> split(final String separator) {
+        final Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            final var value = get(i);
+            if (value == null) {
+                result.add(null);
+            } else {
+                Arrays.stream(value.split(separator)).filter(part -> !part.isEmpty()).forEach(result::add);
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(result));
+    }
+}
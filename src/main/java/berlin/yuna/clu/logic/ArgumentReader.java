@@ -6,9 +6,14 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static java.util.Arrays.stream;
 
@@ -23,6 +28,7 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      * example: [mvn clean install --Dencoding="UTF-8", --javaVersion 8 -v=true --args=1,2,3] <br>
      * example (commands): [mvn, clean, install] <br>
      * example (kv): [Dencoding=UTF-8, javaVersion=8, v=true, args=1,2,3] <br>
+     * Quoted values can contain " -" and values can contain "=" e.g. [--opts="-Xmx1g -Da=b"] <br>
      * See: <br>
      * {@link ArgumentReader#getString(String, int, String...)} <br>
      * {@link ArgumentReader#getLong(String, int, String...)} <br>
@@ -43,6 +49,7 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      * example: [mvn clean install --Dencoding="UTF-8", --javaVersion 8 -v=true --args=1,2,3] <br>
      * example (commands): [mvn, clean, install] <br>
      * example (kv): [Dencoding=UTF-8, javaVersion=8, v=true, args=1,2,3] <br>
+     * Quoted values can contain " -" and values can contain "=" e.g. [--opts="-Xmx1g -Da=b"] <br>
      * See: <br>
      * {@link ArgumentReader#getString(String, int, String...)} <br>
      * {@link ArgumentReader#getLong(String, int, String...)} <br>
@@ -65,12 +72,7 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      * @param args strings with arguments
      */
     protected ArgumentReader(final boolean parseEnv, final String... args) {
-        final StringBuilder builder = new StringBuilder();
-        for (String current : args) {
-            builder.append(" ").append(current);
-        }
-
-        parseCommandLine(builder.toString());
+        parse(new ArgumentTokenizer(args));
         if (parseEnv) {
             parseEnvironment();
         }
@@ -269,7 +271,8 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      * @return {@link Optional} of {@link Long} if [value is an integer]
      */
     public Optional<Long> getLong(final String separator, final int index, final String... keys) {
-        return getString(separator, index, keys).map(toLong());
+        final var values = values(keys);
+        return values != null ? values.longs(separator, toLong()).get(index) : getString(separator, index, keys).map(toLong());
     }
 
     /**
@@ -290,7 +293,7 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      * @return {@link Optional} of {@link Long} if [value is an integer]
      */
     public List<Long> getLongs(final char separator, final String... keys) {
-        return getStrings(String.valueOf(separator), keys).stream().map(toLong()).filter(Objects::nonNull).collect(Collectors.toList());
+        return getLongs(String.valueOf(separator), keys);
     }
 
     /**
@@ -301,7 +304,101 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      * @return {@link Optional} of {@link Long} if [value is an integer]
      */
     public List<Long> getLongs(final String separator, final String[] keys) {
-        return getStrings(separator, keys).stream().map(toLong()).filter(Objects::nonNull).collect(Collectors.toList());
+        final var values = values(keys);
+        return values != null
+                ? values.longs(separator, toLong()).list()
+                : getStrings(separator, keys).stream().map(toLong()).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * getAsLong
+     *
+     * @param keys search for
+     * @return {@link OptionalLong} if [value is an integer] - cached after the first conversion
+     */
+    public OptionalLong getAsLong(final String... keys) {
+        return getAsLong(0, keys);
+    }
+
+    /**
+     * getAsLong
+     *
+     * @param keys  search for
+     * @param index number of value
+     * @return {@link OptionalLong} if [value is an integer] - cached after the first conversion
+     */
+    public OptionalLong getAsLong(final int index, final String... keys) {
+        return getAsLong(null, index, keys);
+    }
+
+    /**
+     * getAsLong
+     *
+     * @param keys      search for
+     * @param index     number of value
+     * @param separator handles values as list if present
+     * @return {@link OptionalLong} if [value is an integer] - cached after the first conversion
+     */
+    public OptionalLong getAsLong(final String separator, final int index, final String... keys) {
+        final var values = values(keys);
+        return values != null
+                ? values.longs(separator, toLong()).getAsLong(index)
+                : getLong(separator, index, keys).map(OptionalLong::of).orElseGet(OptionalLong::empty);
+    }
+
+    /**
+     * getLongArray
+     *
+     * @param keys search for
+     * @return all integer values (copy of the cached conversion)
+     */
+    public long[] getLongArray(final String... keys) {
+        return getLongArray(null, keys);
+    }
+
+    /**
+     * getLongArray
+     *
+     * @param keys      search for
+     * @param separator handles values as list if present
+     * @return all integer values (copy of the cached conversion)
+     */
+    public long[] getLongArray(final char separator, final String... keys) {
+        return getLongArray(String.valueOf(separator), keys);
+    }
+
+    /**
+     * getLongArray
+     *
+     * @param keys      search for
+     * @param separator handles values as list if present
+     * @return all integer values (copy of the cached conversion)
+     */
+    public long[] getLongArray(final String separator, final String[] keys) {
+        final var values = values(keys);
+        return values != null ? values.longs(separator, toLong()).array().clone() : getLongs(separator, keys).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * getLongStream
+     *
+     * @param keys search for
+     * @return all integer values without boxing
+     */
+    public LongStream getLongStream(final String... keys) {
+        return getLongStream(null, keys);
+    }
+
+    /**
+     * getLongStream
+     *
+     * @param keys      search for
+     * @param separator handles values as list if present
+     * @return all integer values without boxing
+     */
+    public LongStream getLongStream(final String separator, final String[] keys) {
+        final var values = values(keys);
+        return values != null ? LongStream.of(values.longs(separator, toLong()).array()) : LongStream.of(getLongArray(separator, keys));
     }
 
     /**
@@ -334,7 +431,8 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      * @return {@link Optional} of {@link Long} if [value is an integer]
      */
     public Optional<Double> getDouble(final String separator, final int index, final String... keys) {
-        return getString(separator, index, keys).map(toDouble());
+        final var values = values(keys);
+        return values != null ? values.doubles(separator, toDouble()).get(index) : getString(separator, index, keys).map(toDouble());
     }
 
     /**
@@ -355,7 +453,7 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      * @return {@link Optional} of {@link Long} if [value is an integer]
      */
     public List<Double> getDoubles(final char separator, final String... keys) {
-        return getStrings(String.valueOf(separator), keys).stream().map(toDouble()).filter(Objects::nonNull).collect(Collectors.toList());
+        return getDoubles(String.valueOf(separator), keys);
     }
 
     /**
@@ -366,7 +464,101 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      * @return {@link Optional} of {@link Long} if [value is an integer]
      */
     public List<Double> getDoubles(final String separator, final String[] keys) {
-        return getStrings(separator, keys).stream().map(toDouble()).filter(Objects::nonNull).collect(Collectors.toList());
+        final var values = values(keys);
+        return values != null
+                ? values.doubles(separator, toDouble()).list()
+                : getStrings(separator, keys).stream().map(toDouble()).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * getAsDouble
+     *
+     * @param keys search for
+     * @return {@link OptionalDouble} if [value is a number] - cached after the first conversion
+     */
+    public OptionalDouble getAsDouble(final String... keys) {
+        return getAsDouble(0, keys);
+    }
+
+    /**
+     * getAsDouble
+     *
+     * @param keys  search for
+     * @param index number of value
+     * @return {@link OptionalDouble} if [value is a number] - cached after the first conversion
+     */
+    public OptionalDouble getAsDouble(final int index, final String... keys) {
+        return getAsDouble(null, index, keys);
+    }
+
+    /**
+     * getAsDouble
+     *
+     * @param keys      search for
+     * @param index     number of value
+     * @param separator handles values as list if present
+     * @return {@link OptionalDouble} if [value is a number] - cached after the first conversion
+     */
+    public OptionalDouble getAsDouble(final String separator, final int index, final String... keys) {
+        final var values = values(keys);
+        return values != null
+                ? values.doubles(separator, toDouble()).getAsDouble(index)
+                : getDouble(separator, index, keys).map(OptionalDouble::of).orElseGet(OptionalDouble::empty);
+    }
+
+    /**
+     * getDoubleArray
+     *
+     * @param keys search for
+     * @return all number values (copy of the cached conversion)
+     */
+    public double[] getDoubleArray(final String... keys) {
+        return getDoubleArray(null, keys);
+    }
+
+    /**
+     * getDoubleArray
+     *
+     * @param keys      search for
+     * @param separator handles values as list if present
+     * @return all number values (copy of the cached conversion)
+     */
+    public double[] getDoubleArray(final char separator, final String... keys) {
+        return getDoubleArray(String.valueOf(separator), keys);
+    }
+
+    /**
+     * getDoubleArray
+     *
+     * @param keys      search for
+     * @param separator handles values as list if present
+     * @return all number values (copy of the cached conversion)
+     */
+    public double[] getDoubleArray(final String separator, final String[] keys) {
+        final var values = values(keys);
+        return values != null ? values.doubles(separator, toDouble()).array().clone() : getDoubles(separator, keys).stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * getDoubleStream
+     *
+     * @param keys search for
+     * @return all number values without boxing
+     */
+    public DoubleStream getDoubleStream(final String... keys) {
+        return getDoubleStream(null, keys);
+    }
+
+    /**
+     * getDoubleStream
+     *
+     * @param keys      search for
+     * @param separator handles values as list if present
+     * @return all number values without boxing
+     */
+    public DoubleStream getDoubleStream(final String separator, final String[] keys) {
+        final var values = values(keys);
+        return values != null ? DoubleStream.of(values.doubles(separator, toDouble()).array()) : DoubleStream.of(getDoubleArray(separator, keys));
     }
 
     /**
@@ -384,11 +576,15 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
      *
      * @param key       search for
      * @param separator handles values as list if present
-     * @return list of values or empty list if not found
+     * @return copy of the values or empty list if not found
      */
     public List<String> get(final String separator, final String key) {
-        final List<String> result = super.getOrDefault(key, new ArrayList<>());
-        return separator == null ? result : result.stream().flatMap(s -> stream(s.split(separator)).filter(sp -> !sp.isEmpty())).collect(Collectors.toList());
+        final List<String> result = super.get(key);
+        if (result == null) {
+            return new ArrayList<>();
+        }
+        final List<String> values = result instanceof ArgValues ? ((ArgValues) result).snapshot() : new ArrayList<>(result);
+        return separator == null ? values : values.stream().flatMap(s -> s == null ? Stream.of((String) null) : stream(s.split(separator)).filter(sp -> !sp.isEmpty())).collect(Collectors.toList());
     }
 
     protected List<String> removeDuplicates(final List<String> result) {
@@ -401,34 +597,28 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
     }
 
     protected ArgumentReader parseCommandLine(final String input) {
-        final String process = parseCommands(input);
-
-        for (String argument : (" " + process).split(" --| -")) {
-            argument = argument.trim();
-
-            if (argument.isEmpty()) {
-                continue;
-            }
-
-            final String[] arg = parseToKeyValue(argument);
-
-            final String key = arg[0].trim();
-            final String value = arg[1] == null ? null : getStripedValue(arg[1]);
+        return parse(new ArgumentTokenizer(input));
+    }
 
-            addKV(key, value);
+    private ArgumentReader parse(final ArgumentTokenizer tokens) {
+        for (int i = 0; i < tokens.commandCount(); i++) {
+            commandList.add(tokens.command(i));
+        }
+        for (int i = 0; i < tokens.entryCount(); i++) {
+            addKV(tokens.key(i), tokens.value(i));
         }
         return this;
     }
 
     protected ArgumentReader addKV(final String key, final String value) {
-        final List<String> valueList = new ArrayList<>(get(key));
-        if (value == null || !valueList.contains(value)) {
-            valueList.add(value);
-        }
-        this.put(key, valueList);
+        compute(key, (k, values) -> values instanceof ArgValues ? values : new ArgValues(values == null ? List.of() : values)).add(value);
         return this;
     }
 
+    /**
+     * @deprecated legacy string splitting - no longer used by {@link ArgumentReader#parseCommandLine(String)}
+     */
+    @Deprecated
     protected String parseCommands(final String input) {
         String result = input.trim();
         if (result.contains("-")) {
@@ -448,6 +638,10 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
         return this;
     }
 
+    /**
+     * @deprecated legacy string splitting - no longer used by {@link ArgumentReader#parseCommandLine(String)}
+     */
+    @Deprecated
     protected String getStripedValue(final String value) {
         String result = value == null ? "" : value.trim();
         if ((result.startsWith("'") && result.endsWith("'")) || result.startsWith("\"") && result.endsWith("\"")) {
@@ -456,6 +650,10 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
         return result;
     }
 
+    /**
+     * @deprecated legacy string splitting - no longer used by {@link ArgumentReader#parseCommandLine(String)}
+     */
+    @Deprecated
     protected String[] parseToKeyValue(final String argument) {
         if (argument.indexOf('=') != -1) {
             return argument.split("=");
@@ -467,6 +665,10 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
     }
 
     protected List<String> getValues(final String separator, final String[] keys) {
+        final var values = values(keys);
+        if (values != null) {
+            return values.distinct(separator);
+        }
         List<String> result = new ArrayList<>();
         for (String key : keys) {
             result.addAll(get(separator, key));
@@ -476,6 +678,17 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
         return result;
     }
 
+    /**
+     * @return cached values of a single key - null for several keys or foreign lists
+     */
+    private ArgValues values(final String[] keys) {
+        if (keys.length == 1) {
+            final var values = super.get(keys[0]);
+            return values instanceof ArgValues ? (ArgValues) values : null;
+        }
+        return null;
+    }
+
     /**
      * getValue
      *
@@ -501,7 +714,7 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
                         ? 1
                         : s.equalsIgnoreCase("false")
                         ? 0
-                        : Long.parseLong(s.replaceAll("\\s", ""));
+                        : Long.parseLong(withoutWhitespace(s));
             } catch (Exception ignored) {
                 return null;
             }
@@ -516,13 +729,38 @@ public class ArgumentReader extends ConcurrentHashMap<String, List<String>> {
                         ? 1
                         : s.equalsIgnoreCase("false")
                         ? 0
-                        : Double.parseDouble(s.replaceAll("\\s", ""));
+                        : Double.parseDouble(withoutWhitespace(s));
             } catch (Exception ignored) {
                 return null;
             }
         };
     }
 
+    /**
+     * Same as {@code replaceAll("\\s", "")} without regex and without copy if there is no whitespace
+     */
+    private static String withoutWhitespace(final String value) {
+        int i = 0;
+        while (i < value.length() && !isWhitespace(value.charAt(i))) {
+            i++;
+        }
+        if (i == value.length()) {
+            return value;
+        }
+        final var result = new StringBuilder(value.length()).append(value, 0, i);
+        for (; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (!isWhitespace(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -0,0 +1,244 @@
+package berlin.yuna.clu.logic;
+
+import java.util.Arrays;
+
+/**
+ * Single pass tokenizer for {@link ArgumentReader} <br>
+ * Reads the arguments as if they were joined by a space without joining them and records the boundaries of
+ * commands, keys and values as offsets. Strings are only created on access, a token within one argument is a single substring.
+ * Commands are the words before the first word starting with '-'. An argument ends before the next word starting with '-'
+ * which is not within quotes, its key ends at the first '=' or whitespace.
+ * Without any argument the whole input is a single key value pair (legacy behaviour).
+ */
+class ArgumentTokenizer {
+
+    private static final int NONE = -1;
+
+    private final String[] args;
+    private final int[] starts;
+    private final int length;
+    private int[] commands = new int[8];
+    private int commandCount;
+    private int[] entries = new int[16];
+    private int entryCount;
+    // cursor for sequential access
+    private int arg;
+    private boolean doubleQuotes = true;
+    private boolean singleQuotes = true;
+
+    ArgumentTokenizer(final String... args) {
+        this.args = new String[args.length];
+        this.starts = new int[args.length];
+        int offset = 0;
+        for (int i = 0; i < args.length; i++) {
+            this.args[i] = args[i] == null ? "" : args[i];
+            starts[i] = offset;
+            offset += this.args[i].length() + 1;
+        }
+        this.length = Math.max(0, offset - 1);
+        parse();
+    }
+
+    int commandCount() {
+        return commandCount;
+    }
+
+    String command(final int index) {
+        return slice(commands[index * 2], commands[index * 2 + 1]);
+    }
+
+    int entryCount() {
+        return entryCount;
+    }
+
+    String key(final int index) {
+        return slice(entries[index * 4], entries[index * 4 + 1]);
+    }
+
+    boolean hasValue(final int index) {
+        return entries[index * 4 + 2] != NONE;
+    }
+
+    /**
+     * @return trimmed value without surrounding quotes - null if the key has no value
+     */
+    String value(final int index) {
+        return hasValue(index) ? slice(entries[index * 4 + 2], entries[index * 4 + 3]) : null;
+    }
+
+    private void parse() {
+        int position = skipWhitespace(0);
+        final int first = position;
+        while (position < length && charAt(position) != '-') {
+            final int end = wordEnd(position);
+            addCommand(position, end);
+            position = skipWhitespace(end);
+        }
+        if (position >= length) {
+            // no argument at all - whole input is one key value pair
+            commandCount = 0;
+            if (first < length) {
+                parseArgument(first);
+            }
+            return;
+        }
+        while (position < length) {
+            position = parseArgument(position);
+        }
+    }
+
+    /**
+     * @return start of the next argument or the end of the input
+     */
+    private int parseArgument(final int start) {
+        int position = start;
+        for (int dashes = 0; dashes < 2 && position < length && charAt(position) == '-'; dashes++) {
+            position++;
+        }
+        final int keyStart = position;
+        while (position < length && !whitespace(charAt(position)) && charAt(position) != '=') {
+            position++;
+        }
+        final int keyEnd = position;
+        final boolean assigned = position < length && charAt(position) == '=';
+        if (assigned) {
+            position++;
+        }
+        final int valueStart = position;
+        final int valueEnd = argumentEnd(valueStart);
+        if (keyEnd > keyStart || assigned) {
+            addEntry(keyStart, keyEnd, valueStart, valueEnd, assigned);
+        }
+        return valueEnd < length ? valueEnd + 1 : length;
+    }
+
+    /**
+     * @return position of the whitespace before the next argument or the end of the input
+     */
+    private int argumentEnd(final int start) {
+        int position = start;
+        char quote = 0;
+        int quoteStart = NONE;
+        while (true) {
+            if (position >= length) {
+                if (quote == 0) {
+                    return length;
+                }
+                // unclosed quote - read it as normal character, quotes of this type can't close later either
+                disable(quote);
+                position = quoteStart + 1;
+                quote = 0;
+                continue;
+            }
+            final char c = charAt(position);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (enabled(c) && (position == start || whitespace(charAt(position - 1)) || charAt(position - 1) == '=')) {
+                quote = c;
+                quoteStart = position;
+            } else if (whitespace(c) && position + 1 < length && charAt(position + 1) == '-') {
+                return position;
+            }
+            position++;
+        }
+    }
+
+    private void addCommand(final int start, final int end) {
+        if (commandCount * 2 + 2 > commands.length) {
+            commands = Arrays.copyOf(commands, commands.length * 2);
+        }
+        commands[commandCount * 2] = start;
+        commands[commandCount * 2 + 1] = end;
+        commandCount++;
+    }
+
+    private void addEntry(final int keyStart, final int keyEnd, final int valueStart, final int valueEnd, final boolean assigned) {
+        int from = valueStart;
+        int to = valueEnd;
+        while (from < to && whitespace(charAt(from))) {
+            from++;
+        }
+        while (to > from && whitespace(charAt(to - 1))) {
+            to--;
+        }
+        if (to - from >= 2 && (charAt(from) == '"' || charAt(from) == '\'') && charAt(to - 1) == charAt(from)) {
+            from++;
+            to--;
+        }
+        if (entryCount * 4 + 4 > entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        final int index = entryCount * 4;
+        entries[index] = keyStart;
+        entries[index + 1] = keyEnd;
+        entries[index + 2] = assigned || to > from ? from : NONE;
+        entries[index + 3] = to;
+        entryCount++;
+    }
+
+    private int skipWhitespace(final int start) {
+        int position = start;
+        while (position < length && whitespace(charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private int wordEnd(final int start) {
+        int position = start;
+        while (position < length && !whitespace(charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private boolean enabled(final char c) {
+        return (c == '"' && doubleQuotes) || (c == '\'' && singleQuotes);
+    }
+
+    private void disable(final char quote) {
+        if (quote == '"') {
+            doubleQuotes = false;
+        } else {
+            singleQuotes = false;
+        }
+    }
+
+    private static boolean whitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * @return char of the virtually joined input - a space between two arguments
+     */
+    private char charAt(final int position) {
+        if (position < starts[arg] || position > starts[arg] + args[arg].length()) {
+            arg = argAt(position);
+        }
+        final int offset = position - starts[arg];
+        return offset == args[arg].length() ? ' ' : args[arg].charAt(offset);
+    }
+
+    private int argAt(final int position) {
+        if (arg + 1 < starts.length && position >= starts[arg + 1] && (arg + 2 >= starts.length || position < starts[arg + 2])) {
+            return arg + 1;
+        }
+        final int index = Arrays.binarySearch(starts, position);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private String slice(final int start, final int end) {
+        final int first = argAt(start);
+        final int offset = start - starts[first];
+        if (end - starts[first] <= args[first].length()) {
+            return args[first].substring(offset, end - starts[first]);
+        }
+        final var result = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            result.append(charAt(i));
+        }
+        return result.toString();
+    }
+}
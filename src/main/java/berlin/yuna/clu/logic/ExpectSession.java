@@ -0,0 +1,289 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.exception.TerminalExecutionException;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Arrays.stream;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Interactive session on a command started by {@link Terminal#session(String)} <br>
+ * Output of stdout and stderr is fed into a buffer as soon as it arrives (also prompts without line break).
+ * Every arriving chunk wakes up a waiting {@link ExpectSession#expect(long, Pattern...)} which matches the unconsumed output.
+ * A successful match consumes the output until the end of the match. Each pattern only rescans the new output and, if its last attempt
+ * reached the end of the output, the last 64 KB before it - longer matches across chunks are not found.
+ * <br>
+ * example: <br>
+ * <pre>{@code
+ * try (final ExpectSession session = new Terminal().session("python3 -i")) {
+ *     session.expect(">>> ");
+ *     session.sendLine("print(6 * 7)");
+ *     if (session.expect("42", "Error") == 0) { ... }
+ * }
+ * }</pre>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class ExpectSession implements AutoCloseable {
+
+    /**
+     * {@link ExpectSession#expect(long, Pattern...)} result if no pattern matched in time
+     */
+    public static final int TIMEOUT = -1;
+    /**
+     * {@link ExpectSession#expect(long, Pattern...)} result if the output ended before any pattern matched
+     */
+    public static final int EOF = -2;
+
+    private static final int MAX_BUFFER = 1024 * 1024;
+    private static final int LOOK_BACK = 64 * 1024;
+
+    private final Terminal terminal;
+    private final Process process;
+    private final Writer stdin;
+    private final StringBuilder buffer = new StringBuilder();
+    private final AtomicInteger openStreams = new AtomicInteger(2);
+    // chars removed from the start of the buffer - makes search positions stable
+    private long removed;
+    private long timeoutMs;
+    private MatchResult match;
+    private String before = "";
+
+    ExpectSession(final Terminal terminal, final String command) throws IOException {
+        this.terminal = terminal;
+        this.timeoutMs = terminal.timeoutMs() > 0 ? terminal.timeoutMs() : 10000;
+        this.process = terminal.process(command, singletonList(this::feed), this::streamEnded);
+        this.stdin = new OutputStreamWriter(process.getOutputStream());
+    }
+
+    /**
+     * @return default timeout of {@link ExpectSession#expect(String...)}
+     */
+    public synchronized long timeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * @param timeoutMs default timeout of {@link ExpectSession#expect(String...)} (default: {@link Terminal#timeoutMs()} or 10000)
+     * @return ExpectSession
+     */
+    public synchronized ExpectSession timeoutMs(final long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        return this;
+    }
+
+    /**
+     * Sends text to stdin of the process
+     *
+     * @param text text to send
+     * @return ExpectSession
+     */
+    public ExpectSession send(final CharSequence text) {
+        try {
+            stdin.append(text);
+            stdin.flush();
+        } catch (IOException e) {
+            throw new TerminalExecutionException("Failed to send input to process [" + process.pid() + "]", e);
+        }
+        return this;
+    }
+
+    /**
+     * Sends a line to stdin of the process
+     *
+     * @param line line to send (a line break is appended)
+     * @return ExpectSession
+     */
+    public ExpectSession sendLine(final CharSequence line) {
+        return send(line + "\n");
+    }
+
+    /**
+     * Closes stdin of the process
+     *
+     * @return ExpectSession
+     */
+    public ExpectSession sendEof() {
+        try {
+            stdin.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+        return this;
+    }
+
+    /**
+     * Waits until one of the patterns matches the output with the default timeout
+     *
+     * @param regex patterns to wait for
+     * @return index of the matching pattern, {@link ExpectSession#TIMEOUT} or {@link ExpectSession#EOF}
+     */
+    public int expect(final String... regex) {
+        return expect(timeoutMs(), regex);
+    }
+
+    /**
+     * Waits until one of the patterns matches the output
+     *
+     * @param timeoutMs max time to wait
+     * @param regex     patterns to wait for
+     * @return index of the matching pattern, {@link ExpectSession#TIMEOUT} or {@link ExpectSession#EOF}
+     */
+    public int expect(final long timeoutMs, final String... regex) {
+        return expect(timeoutMs, stream(regex).map(Pattern::compile).toArray(Pattern[]::new));
+    }
+
+    /**
+     * Waits until one of the patterns matches the output - the earliest match in the output wins
+     *
+     * @param timeoutMs max time to wait
+     * @param patterns  patterns to wait for
+     * @return index of the matching pattern, {@link ExpectSession#TIMEOUT} or {@link ExpectSession#EOF}
+     */
+    public synchronized int expect(final long timeoutMs, final Pattern... patterns) {
+        final long deadline = System.nanoTime() + MILLISECONDS.toNanos(timeoutMs);
+        final long[] from = new long[patterns.length];
+        Arrays.fill(from, removed);
+        try {
+            while (true) {
+                final int index = find(patterns, from);
+                if (index >= 0) {
+                    return index;
+                } else if (openStreams.get() == 0) {
+                    return EOF;
+                }
+                final long remainingMs = NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return TIMEOUT;
+                }
+                wait(remainingMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TIMEOUT;
+        }
+    }
+
+    /**
+     * @return match of the last successful {@link ExpectSession#expect(long, Pattern...)}
+     */
+    public synchronized MatchResult match() {
+        return match;
+    }
+
+    /**
+     * @return output between the previous and the last successful match
+     */
+    public synchronized String before() {
+        return before;
+    }
+
+    /**
+     * @return output which was not consumed by any match yet
+     */
+    public synchronized String buffer() {
+        return buffer.toString();
+    }
+
+    /**
+     * @return the underlying {@link Process}
+     */
+    public Process process() {
+        return process;
+    }
+
+    /**
+     * @return true if the process is still alive
+     */
+    public boolean running() {
+        return process.isAlive();
+    }
+
+    /**
+     * @return the {@link Terminal} which started the session
+     */
+    public Terminal terminal() {
+        return terminal;
+    }
+
+    /**
+     * Closes stdin, waits for the default timeout and destroys the process tree if it is still running
+     *
+     * @return exit status of the process
+     */
+    public int status() {
+        sendEof();
+        try {
+            if (!process.waitFor(timeoutMs(), MILLISECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly().waitFor();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return process.isAlive() ? -1 : process.exitValue();
+    }
+
+    @Override
+    public void close() {
+        status();
+    }
+
+    /**
+     * @param from per pattern the absolute output position to continue the search at - updated after each miss
+     */
+    private int find(final Pattern[] patterns, final long[] from) {
+        Matcher best = null;
+        int index = -1;
+        for (int i = 0; i < patterns.length; i++) {
+            final int start = (int) Math.max(0, from[i] - removed);
+            final var matcher = patterns[i].matcher(buffer);
+            if (!matcher.find(start)) {
+                // a miss which never reached the end can't match later, otherwise only the tail can still grow into a match
+                from[i] = removed + (matcher.hitEnd() ? Math.max(start, buffer.length() - LOOK_BACK) : buffer.length());
+            } else if (best == null || matcher.start() < best.start()) {
+                best = matcher;
+                index = i;
+            }
+        }
+        if (best != null) {
+            match = best.toMatchResult();
+            before = buffer.substring(0, best.start());
+            buffer.delete(0, best.end());
+            removed += best.end();
+        }
+        return index;
+    }
+
+    private synchronized void feed(final CharSequence chunk) {
+        buffer.append(chunk);
+        if (buffer.length() > MAX_BUFFER) {
+            removed += buffer.length() - MAX_BUFFER;
+            buffer.delete(0, buffer.length() - MAX_BUFFER);
+        }
+        notifyAll();
+    }
+
+    private synchronized void streamEnded() {
+        openStreams.decrementAndGet();
+        notifyAll();
+    }
+
+    @Override
+    public String toString() {
+        return "ExpectSession{" +
+                "pid=" + process.pid() +
+                ", running=" + process.isAlive() +
+                ", buffered=" + buffer.length() +
+                '}';
+    }
+}
@@ -0,0 +1,364 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.exception.FileNotReadableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Follows a file like {@code tail -F} and emits only appended lines <br>
+ * Keeps the read position of an open {@link FileChannel}, so the cost scales with the new data and not with the file size.
+ * Reacts on {@link WatchService} events and falls back to adaptive polling (10ms doubling up to {@link FileTail#maxPollMs(long)}).
+ * Truncation restarts at the beginning, rotation (a new file under the same path) drains the old file before switching.
+ * Lines end with \n or \r\n, the last line is emitted once it's terminated. Charsets need a single byte \n (e.g. UTF-8, ISO-8859-1).
+ * <br>
+ * example: <br>
+ * <pre>{@code
+ * try (FileTail tail = new FileTail(Path.of("app.log")).consumer(System.out::println).start()) {
+ *     ...
+ * }
+ * }</pre>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class FileTail implements AutoCloseable {
+
+    private static final int CHUNK = 64 * 1024;
+    private static final long MIN_POLL_MS = 10;
+
+    private final Path path;
+    private final AtomicReference<Charset> charset = new AtomicReference<>(UTF_8);
+    private final AtomicBoolean fromEnd = new AtomicBoolean(false);
+    private final AtomicLong maxPollMs = new AtomicLong(1000);
+    private final List<Consumer<String>> consumers = new CopyOnWriteArrayList<>();
+    private final AtomicReference<SubmissionPublisher<String>> publisher = new AtomicReference<>();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicLong lines = new AtomicLong(0);
+    private final AtomicLong bytes = new AtomicLong(0);
+    private final AtomicLong rotations = new AtomicLong(0);
+    private final AtomicLong truncations = new AtomicLong(0);
+    private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+    private FileChannel channel;
+    private Object fileKey;
+    private long position;
+    private boolean opened;
+    private Thread thread;
+    private WatchService watchService;
+
+    /**
+     * @param path file to follow (doesn't need to exist yet)
+     */
+    public FileTail(final Path path) {
+        this.path = path.toAbsolutePath();
+    }
+
+    /**
+     * @param charset charset of the file (default UTF-8)
+     * @return FileTail
+     */
+    public FileTail charset(final Charset charset) {
+        this.charset.set(Objects.requireNonNull(charset));
+        return this;
+    }
+
+    /**
+     * @param fromEnd true skips the existing content of the first file (default false)
+     * @return FileTail
+     */
+    public FileTail fromEnd(final boolean fromEnd) {
+        this.fromEnd.set(fromEnd);
+        return this;
+    }
+
+    /**
+     * @param maxPollMs max polling interval while the file doesn't change (default 1000)
+     * @return FileTail
+     */
+    public FileTail maxPollMs(final long maxPollMs) {
+        this.maxPollMs.set(Math.max(MIN_POLL_MS, maxPollMs));
+        return this;
+    }
+
+    /**
+     * @param consumers consumers of the appended lines (called from the tail thread)
+     * @return FileTail
+     */
+    @SafeVarargs
+    public final FileTail consumer(final Consumer<String>... consumers) {
+        this.consumers.addAll(List.of(consumers));
+        return this;
+    }
+
+    /**
+     * @return publisher of the appended lines (created on first call, completed on {@link FileTail#close()}) - the tail waits for
+     * subscribers which are a full buffer behind, {@link FileTail#close()} stops waiting and drops the rest
+     */
+    public SubmissionPublisher<String> publisher() {
+        return publisher.updateAndGet(current -> current != null ? current : new SubmissionPublisher<>());
+    }
+
+    /**
+     * Follows the file in a background thread
+     *
+     * @return FileTail
+     */
+    public synchronized FileTail start() {
+        if (running.compareAndSet(false, true)) {
+            if (fromEnd.get()) {
+                // pins the start position, so lines appended after start are not skipped
+                poll();
+            }
+            try {
+                watchService = path.getFileSystem().newWatchService();
+                path.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            } catch (IOException e) {
+                // polling only
+                watchService = null;
+            }
+            thread = new Thread(this::follow, "clu-tail");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return this;
+    }
+
+    /**
+     * Reads the appended data now (used by the tail thread - can be called manually without {@link FileTail#start()})
+     *
+     * @return number of emitted lines
+     * @throws FileNotReadableException if the file can't be read
+     */
+    public synchronized int poll() {
+        try {
+            int result = 0;
+            final var attributes = attributes();
+            if (channel != null && (attributes == null || !Objects.equals(fileKey, attributes.fileKey()))) {
+                // rotated or deleted - the old file might still have unread lines
+                result += read();
+                channel.close();
+                channel = null;
+                partial.reset();
+                if (attributes != null) {
+                    rotations.incrementAndGet();
+                }
+            }
+            if (channel == null && attributes != null) {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+                fileKey = attributes.fileKey();
+                position = !opened && fromEnd.get() ? channel.size() : 0;
+                opened = true;
+            }
+            if (channel != null && channel.size() < position) {
+                truncations.incrementAndGet();
+                position = 0;
+                partial.reset();
+            }
+            return channel == null ? result : result + read();
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new FileNotReadableException("Could not tail file [" + path + "]", e);
+        }
+    }
+
+    /**
+     * @return number of emitted lines
+     */
+    public long lines() {
+        return lines.get();
+    }
+
+    /**
+     * @return number of read bytes
+     */
+    public long bytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return number of detected rotations (new file under the same path)
+     */
+    public long rotations() {
+        return rotations.get();
+    }
+
+    /**
+     * @return number of detected truncations
+     */
+    public long truncations() {
+        return truncations.get();
+    }
+
+    /**
+     * @return current read position in the current file
+     */
+    public synchronized long position() {
+        return position;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public boolean running() {
+        return running.get();
+    }
+
+    /**
+     * Stops following and closes the file (an unterminated last line is not emitted)
+     */
+    @Override
+    public void close() {
+        // first, so a tail waiting for a slow subscriber stops before the monitor is needed
+        closed.set(true);
+        running.set(false);
+        final Thread current;
+        synchronized (this) {
+            current = thread;
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException ignored) {
+                    // already closed
+                }
+            }
+        }
+        if (current != null && current != Thread.currentThread()) {
+            current.interrupt();
+            try {
+                current.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException ignored) {
+                // already closed
+            }
+            channel = null;
+        }
+        final var lastPublisher = publisher.getAndSet(null);
+        if (lastPublisher != null) {
+            lastPublisher.close();
+        }
+    }
+
+    private void follow() {
+        long pollMs = MIN_POLL_MS;
+        while (running.get()) {
+            try {
+                final int emitted = poll();
+                pollMs = emitted > 0 ? MIN_POLL_MS : Math.min(pollMs * 2, maxPollMs.get());
+                final var key = watchService == null ? null : watchService.poll(pollMs, MILLISECONDS);
+                if (key == null && watchService == null) {
+                    Thread.sleep(pollMs);
+                } else if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                    pollMs = MIN_POLL_MS;
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (FileNotReadableException e) {
+                // retried on the next event or poll
+                sleep(pollMs);
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        int result = 0;
+        int count;
+        while (!closed.get() && (count = channel.read(buffer.clear(), position)) > 0) {
+            position += count;
+            bytes.addAndGet(count);
+            final var array = buffer.array();
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                if (array[i] == '\n') {
+                    partial.write(array, start, i - start);
+                    emit();
+                    result++;
+                    start = i + 1;
+                }
+            }
+            partial.write(array, start, count - start);
+        }
+        return result;
+    }
+
+    private void emit() {
+        final var line = partial.toByteArray();
+        partial.reset();
+        final int length = line.length > 0 && line[line.length - 1] == '\r' ? line.length - 1 : line.length;
+        final var text = new String(line, 0, length, charset.get());
+        lines.incrementAndGet();
+        consumers.forEach(consumer -> consumer.accept(text));
+        final var current = publisher.get();
+        if (current != null && !closed.get()) {
+            // submit would block uninterruptibly within the monitor
+            current.offer(text, (subscriber, item) -> awaitSpace(current));
+        }
+    }
+
+    /**
+     * @return true to retry the offer - false if closed or interrupted
+     */
+    private boolean awaitSpace(final SubmissionPublisher<String> current) {
+        while (!closed.get() && current.estimateMaximumLag() >= current.getMaxBufferCapacity()) {
+            try {
+                Thread.sleep(MIN_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return !closed.get();
+    }
+
+    private BasicFileAttributes attributes() {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void sleep(final long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
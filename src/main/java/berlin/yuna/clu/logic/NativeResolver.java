@@ -0,0 +1,246 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.OsArch;
+import berlin.yuna.clu.model.OsArchType;
+import berlin.yuna.clu.model.OsType;
+import berlin.yuna.clu.model.exception.FileCopyException;
+import berlin.yuna.clu.util.ResourceExtractor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.file.attribute.PosixFilePermission.GROUP_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_READ;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_READ;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
+
+/**
+ * Picks the best per platform variant of a bundled binary, extracts it and makes it executable <br>
+ * Resource names are built from patterns with the placeholders {@code {base}}, {@code {os}} (linux, darwin, windows, ...),
+ * {@code {arch}} (amd, arm, intel, ppc), {@code {type}} (64, 86, 7, 6), {@code {osArch}} (raw os.arch e.g. aarch64),
+ * {@code {feature}} (CPU feature e.g. avx2) and {@code {ext}} (.exe on windows).
+ * Patterns with {@code {feature}} are tried for every preferred feature the CPU supports, so optimised builds win when they are bundled.
+ * The first existing resource is extracted once (see {@link ResourceExtractor}) and later calls resolve from a cache.
+ * <br>
+ * example: <br>
+ * <pre>{@code
+ * // bundled: bin/tool-linux-amd64-avx2, bin/tool-linux-amd64, bin/tool-darwin-arm64, bin/tool-windows-amd64.exe
+ * final Path tool = new NativeResolver(MyApp.class, "bin/tool").resolve();
+ * new Terminal().execute(tool + " --version");
+ * }</pre>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class NativeResolver {
+
+    public static final List<String> DEFAULT_PATTERNS = List.of(
+            "{base}-{os}-{arch}{type}-{feature}{ext}",
+            "{base}-{os}-{arch}{type}{ext}",
+            "{base}-{os}-{osArch}{ext}",
+            "{base}-{os}{ext}",
+            "{base}{ext}"
+    );
+    public static final List<String> DEFAULT_FEATURES = List.of("avx512f", "avx2", "sse4_2", "neon");
+    private static final Map<List<Object>, Path> RESOLVED = new ConcurrentHashMap<>();
+
+    private final ClassLoader classLoader;
+    private final String base;
+    private final List<String> patterns = new CopyOnWriteArrayList<>(DEFAULT_PATTERNS);
+    private final List<String> features = new CopyOnWriteArrayList<>(DEFAULT_FEATURES);
+    private final AtomicReference<OsType> os = new AtomicReference<>(SystemUtil.OS);
+    private final AtomicReference<OsArch> arch = new AtomicReference<>(SystemUtil.OS_ARCH);
+    private final AtomicReference<OsArchType> archType = new AtomicReference<>(SystemUtil.OS_ARCH_TYPE);
+    private final AtomicReference<String> osArch = new AtomicReference<>(System.getProperty("os.arch", ""));
+    private final AtomicReference<Path> target = new AtomicReference<>(Path.of(SystemUtil.TMP_DIR, "clu-native"));
+
+    /**
+     * @param clazz Caller class to get its classloader
+     * @param base  resource path without the platform suffix (e.g. bin/tool)
+     */
+    public NativeResolver(final Class<?> clazz, final String base) {
+        this(clazz.getClassLoader(), base);
+    }
+
+    /**
+     * @param classLoader class loader of the resources
+     * @param base        resource path without the platform suffix (e.g. bin/tool)
+     */
+    public NativeResolver(final ClassLoader classLoader, final String base) {
+        this.classLoader = classLoader;
+        this.base = base.startsWith("/") ? base.substring(1) : base;
+    }
+
+    /**
+     * @param patterns resource name patterns in order of preference (default {@link NativeResolver#DEFAULT_PATTERNS})
+     * @return NativeResolver
+     */
+    public NativeResolver patterns(final String... patterns) {
+        this.patterns.clear();
+        this.patterns.addAll(List.of(patterns));
+        return this;
+    }
+
+    public List<String> patterns() {
+        return List.copyOf(patterns);
+    }
+
+    /**
+     * @param features CPU features in order of preference - only supported ones are tried (default {@link NativeResolver#DEFAULT_FEATURES})
+     * @return NativeResolver
+     */
+    public NativeResolver features(final String... features) {
+        this.features.clear();
+        this.features.addAll(List.of(features));
+        return this;
+    }
+
+    public List<String> features() {
+        return List.copyOf(features);
+    }
+
+    /**
+     * @param os target OS (default {@link SystemUtil#OS})
+     * @return NativeResolver
+     */
+    public NativeResolver os(final OsType os) {
+        this.os.set(os);
+        return this;
+    }
+
+    public OsType os() {
+        return os.get();
+    }
+
+    /**
+     * @param arch target architecture (default {@link SystemUtil#OS_ARCH})
+     * @return NativeResolver
+     */
+    public NativeResolver arch(final OsArch arch) {
+        this.arch.set(arch);
+        return this;
+    }
+
+    public OsArch arch() {
+        return arch.get();
+    }
+
+    /**
+     * @param archType target architecture type (default {@link SystemUtil#OS_ARCH_TYPE})
+     * @return NativeResolver
+     */
+    public NativeResolver archType(final OsArchType archType) {
+        this.archType.set(archType);
+        return this;
+    }
+
+    public OsArchType archType() {
+        return archType.get();
+    }
+
+    /**
+     * @param osArch raw architecture name for {@code {osArch}} (default system property os.arch)
+     * @return NativeResolver
+     */
+    public NativeResolver osArch(final String osArch) {
+        this.osArch.set(osArch);
+        return this;
+    }
+
+    public String osArch() {
+        return osArch.get();
+    }
+
+    /**
+     * @param target directory for the extracted binaries (default {@link SystemUtil#TMP_DIR}/clu-native)
+     * @return NativeResolver
+     */
+    public NativeResolver target(final Path target) {
+        this.target.set(target);
+        return this;
+    }
+
+    public Path target() {
+        return target.get();
+    }
+
+    /**
+     * @return resource names to try in order of preference
+     */
+    public List<String> candidates() {
+        final var supported = features.stream().filter(SystemUtil.systemInfo()::hasCpuFeature).toArray(String[]::new);
+        final var result = new LinkedHashSet<String>();
+        for (String pattern : patterns) {
+            final var name = pattern
+                    .replace("{base}", base)
+                    .replace("{os}", token(os.get()))
+                    .replace("{arch}", token(arch.get()))
+                    .replace("{type}", token(archType.get()))
+                    .replace("{osArch}", osArch.get().toLowerCase(Locale.ROOT))
+                    .replace("{ext}", os.get() == OsType.OS_WINDOWS ? ".exe" : "");
+            if (name.contains("{feature}")) {
+                for (String feature : supported) {
+                    result.add(name.replace("{feature}", feature.toLowerCase(Locale.ROOT)));
+                }
+            } else {
+                result.add(name);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * @return first bundled resource of {@link NativeResolver#candidates()}
+     */
+    public Optional<String> resource() {
+        return candidates().stream().filter(name -> classLoader.getResource(name) != null).findFirst();
+    }
+
+    /**
+     * Extracts the best variant into {@link NativeResolver#target()} and makes it executable - cached after the first call
+     *
+     * @return path of the executable
+     * @throws FileCopyException if no variant is bundled or it can't be extracted
+     */
+    public Path resolve() {
+        final List<Object> key = List.of(classLoader, base, patterns(), features(), os.get(), arch.get(), archType.get(), osArch.get(), target.get());
+        final var cached = RESOLVED.get(key);
+        if (cached != null && Files.isRegularFile(cached)) {
+            return cached;
+        }
+        final var resource = resource().orElseThrow(() -> new FileCopyException(
+                "Could not resolve native resource [" + base + "]", new IOException("No variant found of " + candidates())));
+        final var path = ResourceExtractor.extract(classLoader, resource, target.get().resolve(Path.of(resource).getFileName().toString()));
+        if (os.get().isUnix() && !SystemUtil.setFilePermissions(path, OWNER_READ, OWNER_WRITE, OWNER_EXECUTE, GROUP_READ, GROUP_EXECUTE, OTHERS_READ, OTHERS_EXECUTE)) {
+            throw new FileCopyException("Could not make native resource executable", new IOException("chmod failed [" + path + "]"));
+        }
+        RESOLVED.put(key, path);
+        return path;
+    }
+
+    private static String token(final Object value) {
+        return value.toString().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "NativeResolver{" +
+                "base=" + base +
+                ", os=" + os +
+                ", arch=" + arch +
+                ", archType=" + archType +
+                ", target=" + target +
+                '}';
+    }
+}
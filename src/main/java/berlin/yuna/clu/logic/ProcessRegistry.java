@@ -0,0 +1,198 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.ProcessEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Global registry of all live processes started through a {@link Terminal}
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class ProcessRegistry {
+
+    private static final Map<Long, ProcessEntry> PROCESSES = new ConcurrentHashMap<>();
+    private static final AtomicLong STARTED = new AtomicLong(0);
+    private static final AtomicLong EXITED = new AtomicLong(0);
+    private static final AtomicLong ORPHANED = new AtomicLong(0);
+    private static final AtomicLong LEAKED = new AtomicLong(0);
+    private static final AtomicLong KILLED = new AtomicLong(0);
+    private static final AtomicReference<Thread> SHUTDOWN_HOOK = new AtomicReference<>();
+
+    /**
+     * Registers a process until it exits
+     *
+     * @param process  process to register
+     * @param command  command label
+     * @param owner    owner label
+     * @param ownerRef owner instance - the entry counts as orphaned when the owner is garbage collected
+     * @return registered entry
+     */
+    public static ProcessEntry register(final Process process, final String command, final String owner, final Object ownerRef) {
+        final var entry = new ProcessEntry(process, command, owner, ownerRef);
+        STARTED.incrementAndGet();
+        PROCESSES.put(process.pid(), entry);
+        process.onExit().thenRun(() -> {
+            if (PROCESSES.remove(process.pid(), entry)) {
+                EXITED.incrementAndGet();
+            }
+        });
+        return entry;
+    }
+
+    /**
+     * Marks the registered process as orphaned if it is still running (e.g. its owner started a new command)
+     *
+     * @param process process to mark
+     */
+    public static void orphan(final Process process) {
+        final var entry = process == null ? null : PROCESSES.get(process.pid());
+        if (entry != null && entry.isAlive() && entry.replaced()) {
+            ORPHANED.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return snapshot of all live processes ordered by start time
+     */
+    public static List<ProcessEntry> processes() {
+        final var result = new ArrayList<>(PROCESSES.values());
+        result.removeIf(entry -> !entry.isAlive());
+        result.sort(Comparator.comparing(ProcessEntry::getStartTime));
+        return result;
+    }
+
+    /**
+     * @return snapshot of all live processes without a reachable owner
+     */
+    public static List<ProcessEntry> orphans() {
+        final var result = processes();
+        result.removeIf(entry -> !entry.isOrphaned());
+        return result;
+    }
+
+    /**
+     * @return number of live processes
+     */
+    public static int size() {
+        return processes().size();
+    }
+
+    /**
+     * Terminates all live processes and their children gracefully (SIGTERM) and forcibly after the deadline
+     *
+     * @param deadlineMs time for the processes to exit gracefully
+     * @return number of processes which were still running
+     */
+    public static int shutdownAll(final long deadlineMs) {
+        final var entries = processes();
+        LEAKED.addAndGet(entries.size());
+        entries.forEach(entry -> {
+            entry.getProcess().descendants().forEach(ProcessHandle::destroy);
+            entry.getProcess().destroy();
+        });
+        awaitExit(entries, deadlineMs);
+        final var remaining = entries.stream().filter(ProcessEntry::isAlive).toList();
+        remaining.forEach(entry -> {
+            KILLED.incrementAndGet();
+            entry.getProcess().descendants().forEach(ProcessHandle::destroyForcibly);
+            entry.getProcess().destroyForcibly();
+        });
+        awaitExit(remaining, deadlineMs);
+        return entries.size();
+    }
+
+    /**
+     * Installs a JVM shutdown hook which calls {@link ProcessRegistry#shutdownAll(long)} (replaces a previous hook)
+     *
+     * @param deadlineMs time for the processes to exit gracefully
+     */
+    public static void installShutdownHook(final long deadlineMs) {
+        final var hook = new Thread(() -> shutdownAll(deadlineMs), "clu-process-registry-shutdown");
+        removeShutdownHook();
+        if (SHUTDOWN_HOOK.compareAndSet(null, hook)) {
+            Runtime.getRuntime().addShutdownHook(hook);
+        }
+    }
+
+    /**
+     * Removes the hook of {@link ProcessRegistry#installShutdownHook(long)}
+     *
+     * @return true if a hook was removed
+     */
+    public static boolean removeShutdownHook() {
+        final var hook = SHUTDOWN_HOOK.getAndSet(null);
+        try {
+            return hook != null && Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down
+            return false;
+        }
+    }
+
+    /**
+     * @return true if a shutdown hook is installed
+     */
+    public static boolean hasShutdownHook() {
+        return SHUTDOWN_HOOK.get() != null;
+    }
+
+    /**
+     * @return number of registered processes since JVM start
+     */
+    public static long started() {
+        return STARTED.get();
+    }
+
+    /**
+     * @return number of registered processes which exited
+     */
+    public static long exited() {
+        return EXITED.get();
+    }
+
+    /**
+     * @return number of processes which were still running when their owner started a new command
+     */
+    public static long orphaned() {
+        return ORPHANED.get();
+    }
+
+    /**
+     * @return number of processes which were still running at {@link ProcessRegistry#shutdownAll(long)}
+     */
+    public static long leaked() {
+        return LEAKED.get();
+    }
+
+    /**
+     * @return number of processes which needed to be killed forcibly after the deadline
+     */
+    public static long killed() {
+        return KILLED.get();
+    }
+
+    private static void awaitExit(final List<ProcessEntry> entries, final long timeoutMs) {
+        try {
+            CompletableFuture.allOf(entries.stream().map(entry -> entry.getProcess().onExit()).toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, timeoutMs), MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ignored) {
+            // still running
+        }
+    }
+
+    private ProcessRegistry() {
+    }
+}
@@ -0,0 +1,436 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.SupervisorState;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import static berlin.yuna.clu.model.SupervisorState.BACKOFF;
+import static berlin.yuna.clu.model.SupervisorState.CRASH_LOOP;
+import static berlin.yuna.clu.model.SupervisorState.READY;
+import static berlin.yuna.clu.model.SupervisorState.STARTING;
+import static berlin.yuna.clu.model.SupervisorState.STOPPED;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Keeps a long-running command (e.g. a local database or mock server) alive <br>
+ * Restarts the command with exponential backoff and gives up on crash loops ({@link SupervisorState#CRASH_LOOP}).
+ * Readiness is declared through probes which are checked on events: output lines, file system events of the probe directories
+ * and an adaptive retry (10ms doubling up to 500ms) for ports.
+ * <br>
+ * example: <br>
+ * <pre>{@code
+ * final Supervisor db = new Supervisor("postgres -D data").readyOnOutput("ready to accept connections").readyOnPort(5432).start();
+ * db.awaitReady(10000);
+ * }</pre>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class Supervisor implements AutoCloseable {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final var thread = new Thread(runnable, "clu-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final long MAX_PROBE_INTERVAL_MS = 500;
+
+    private final String command;
+    private final Terminal template;
+    private final AtomicLong backoffMs = new AtomicLong(100);
+    private final AtomicLong maxBackoffMs = new AtomicLong(30000);
+    private final AtomicInteger crashLoopRestarts = new AtomicInteger(5);
+    private final AtomicLong crashLoopWindowMs = new AtomicLong(60000);
+    private final AtomicLong stopTimeoutMs = new AtomicLong(5000);
+    private final List<Pattern> outputProbes = new CopyOnWriteArrayList<>();
+    private final List<Integer> portProbes = new CopyOnWriteArrayList<>();
+    private final List<Path> fileProbes = new CopyOnWriteArrayList<>();
+    private final Set<Pattern> matchedOutput = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<SupervisorState> state = new AtomicReference<>(STOPPED);
+    private final AtomicBoolean active = new AtomicBoolean(false);
+    private final AtomicInteger generation = new AtomicInteger(0);
+    private final AtomicInteger restarts = new AtomicInteger(0);
+    private final AtomicInteger failures = new AtomicInteger(0);
+    private final AtomicLong startupMs = new AtomicLong(-1);
+    private final AtomicLong startNs = new AtomicLong(0);
+    private final Deque<Long> crashes = new ArrayDeque<>();
+    private Terminal terminal;
+    private ScheduledFuture<?> scheduled;
+    private WatchService watchService;
+
+    /**
+     * @param command command to keep running
+     */
+    public Supervisor(final String command) {
+        this(new Terminal(), command);
+    }
+
+    /**
+     * @param template terminal settings for each run (see {@link Terminal#copyOf(Terminal)})
+     * @param command  command to keep running
+     */
+    public Supervisor(final Terminal template, final String command) {
+        this.template = template;
+        this.command = command;
+    }
+
+    /**
+     * Exponential backoff between restarts - reset as soon as the command gets ready
+     *
+     * @param initialMs first delay (default 100)
+     * @param maxMs     max delay (default 30000)
+     * @return Supervisor
+     */
+    public Supervisor backoffMs(final long initialMs, final long maxMs) {
+        backoffMs.set(Math.max(1, initialMs));
+        maxBackoffMs.set(Math.max(initialMs, maxMs));
+        return this;
+    }
+
+    /**
+     * Stops restarting when the command crashes more often than maxRestarts within the window
+     *
+     * @param maxRestarts max restarts within the window (default 5)
+     * @param windowMs    time window (default 60000)
+     * @return Supervisor
+     */
+    public Supervisor crashLoop(final int maxRestarts, final long windowMs) {
+        crashLoopRestarts.set(maxRestarts);
+        crashLoopWindowMs.set(windowMs);
+        return this;
+    }
+
+    /**
+     * @param stopTimeoutMs time for the command to exit gracefully on {@link Supervisor#stop()} (default 5000)
+     * @return Supervisor
+     */
+    public Supervisor stopTimeoutMs(final long stopTimeoutMs) {
+        this.stopTimeoutMs.set(stopTimeoutMs);
+        return this;
+    }
+
+    /**
+     * @param regex the command is ready when an output line (info or error) matches
+     * @return Supervisor
+     */
+    public Supervisor readyOnOutput(final String regex) {
+        outputProbes.add(Pattern.compile(regex));
+        return this;
+    }
+
+    /**
+     * @param port the command is ready when the localhost port accepts connections
+     * @return Supervisor
+     */
+    public Supervisor readyOnPort(final int port) {
+        portProbes.add(port);
+        return this;
+    }
+
+    /**
+     * @param file the command is ready when the file exists
+     * @return Supervisor
+     */
+    public Supervisor readyOnFile(final Path file) {
+        fileProbes.add(file.toAbsolutePath());
+        return this;
+    }
+
+    /**
+     * Starts the command - does nothing if the supervisor is already active
+     *
+     * @return Supervisor
+     */
+    public synchronized Supervisor start() {
+        if (active.compareAndSet(false, true)) {
+            crashes.clear();
+            failures.set(0);
+            watchFiles();
+            launch();
+        }
+        return this;
+    }
+
+    /**
+     * Stops the supervision and terminates the process tree (forcibly after {@link Supervisor#stopTimeoutMs(long)})
+     *
+     * @return Supervisor
+     */
+    public Supervisor stop() {
+        final Process process;
+        synchronized (this) {
+            active.set(false);
+            generation.incrementAndGet();
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            closeWatcher();
+            process = terminal == null ? null : terminal.process();
+            state.set(STOPPED);
+            notifyAll();
+        }
+        if (process != null && process.isAlive()) {
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+            try {
+                if (!process.waitFor(stopTimeoutMs.get(), MILLISECONDS)) {
+                    process.descendants().forEach(ProcessHandle::destroyForcibly);
+                    process.destroyForcibly().waitFor(stopTimeoutMs.get(), MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * Waits until all probes are satisfied
+     *
+     * @param timeoutMs max time to wait
+     * @return true if ready - false on timeout, stop or crash loop
+     */
+    public synchronized boolean awaitReady(final long timeoutMs) {
+        final long deadline = System.nanoTime() + MILLISECONDS.toNanos(timeoutMs);
+        try {
+            while (state.get() != READY) {
+                final long remainingMs = NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (!active.get() || remainingMs <= 0) {
+                    return false;
+                }
+                wait(remainingMs);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return current lifecycle state
+     */
+    public SupervisorState state() {
+        return state.get();
+    }
+
+    /**
+     * @return number of restarts since creation
+     */
+    public int restarts() {
+        return restarts.get();
+    }
+
+    /**
+     * @return time from the last (re)start until all probes were satisfied - -1 if not ready yet
+     */
+    public long startupMs() {
+        return startupMs.get();
+    }
+
+    /**
+     * @return terminal of the current run - null if never started (output is only streamed to the consumers, not collected)
+     */
+    public synchronized Terminal terminal() {
+        return terminal;
+    }
+
+    /**
+     * @return supervised command
+     */
+    public String command() {
+        return command;
+    }
+
+    private synchronized void launch() {
+        if (!active.get()) {
+            return;
+        }
+        final int run = generation.incrementAndGet();
+        matchedOutput.clear();
+        startupMs.set(-1);
+        startNs.set(System.nanoTime());
+        state.set(STARTING);
+        // a long-running command would fill the console output for its whole life
+        terminal = Terminal.copyOf(template)
+                .collectOutput(false)
+                .consumerInfoStream(line -> onOutput(run, line))
+                .consumerErrorStream(line -> onOutput(run, line));
+        try {
+            terminal.execute(command, null);
+            terminal.process().onExit().thenRun(() -> onExit(run));
+        } catch (RuntimeException e) {
+            SCHEDULER.execute(() -> onExit(run));
+            return;
+        }
+        if (portProbes.isEmpty()) {
+            checkReady(run);
+        }
+        if (!portProbes.isEmpty() || fileProbes.stream().anyMatch(file -> !Files.isDirectory(file.getParent()))) {
+            probe(run, 10);
+        }
+        notifyAll();
+    }
+
+    private void onOutput(final int run, final String line) {
+        if (run != generation.get() || matchedOutput.size() >= outputProbes.size()) {
+            return;
+        }
+        boolean matched = false;
+        for (Pattern pattern : outputProbes) {
+            matched |= pattern.matcher(line).find() && matchedOutput.add(pattern);
+        }
+        if (matched) {
+            // port probes block - keep them off the output reader
+            if (portProbes.isEmpty()) {
+                checkReady(run);
+            } else {
+                SCHEDULER.execute(() -> checkReady(run));
+            }
+        }
+    }
+
+    private void probe(final int run, final long delayMs) {
+        SCHEDULER.schedule(() -> {
+            if (!checkReady(run) && run == generation.get() && state.get() == STARTING) {
+                probe(run, Math.min(delayMs * 2, MAX_PROBE_INTERVAL_MS));
+            }
+        }, delayMs, MILLISECONDS);
+    }
+
+    private boolean checkReady(final int run) {
+        synchronized (this) {
+            if (run != generation.get() || state.get() != STARTING) {
+                return state.get() == READY;
+            } else if (matchedOutput.size() != outputProbes.size() || !fileProbes.stream().allMatch(Files::exists)) {
+                return false;
+            }
+        }
+        // blocking port probes run outside the monitor, so stop() and the output readers don't wait for them
+        return portProbes.stream().allMatch(Supervisor::isOpen) && markReady(run);
+    }
+
+    private synchronized boolean markReady(final int run) {
+        if (run != generation.get() || state.get() != STARTING) {
+            return state.get() == READY;
+        }
+        startupMs.set(NANOSECONDS.toMillis(System.nanoTime() - startNs.get()));
+        failures.set(0);
+        state.set(READY);
+        notifyAll();
+        return true;
+    }
+
+    private synchronized void onExit(final int run) {
+        if (run != generation.get() || !active.get()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        crashes.addLast(now);
+        while (!crashes.isEmpty() && now - crashes.peekFirst() > MILLISECONDS.toNanos(crashLoopWindowMs.get())) {
+            crashes.removeFirst();
+        }
+        if (crashes.size() > crashLoopRestarts.get()) {
+            active.set(false);
+            closeWatcher();
+            state.set(CRASH_LOOP);
+        } else {
+            final long delay = Math.min(maxBackoffMs.get(), backoffMs.get() << Math.min(failures.getAndIncrement(), 30));
+            restarts.incrementAndGet();
+            state.set(BACKOFF);
+            scheduled = SCHEDULER.schedule(this::launch, delay < 0 ? maxBackoffMs.get() : delay, MILLISECONDS);
+        }
+        notifyAll();
+    }
+
+    private void watchFiles() {
+        final var dirs = fileProbes.stream().map(Path::getParent).filter(Files::isDirectory).distinct().toList();
+        if (dirs.isEmpty()) {
+            return;
+        }
+        try {
+            final var service = FileSystems.getDefault().newWatchService();
+            for (Path dir : dirs) {
+                dir.register(service, ENTRY_CREATE, ENTRY_MODIFY);
+            }
+            watchService = service;
+            final var thread = new Thread(() -> watch(service), "clu-supervisor-watch");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (IOException ignored) {
+            // probes are still checked on output and on start
+        }
+    }
+
+    private void watch(final WatchService service) {
+        try {
+            while (true) {
+                final var key = service.take();
+                key.pollEvents();
+                key.reset();
+                checkReady(generation.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+            // supervisor stopped
+        }
+    }
+
+    private void closeWatcher() {
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException ignored) {
+            // already closed
+        }
+        watchService = null;
+    }
+
+    private static boolean isOpen(final int port) {
+        try (final var socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", port), 50);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Supervisor{" +
+                "command='" + command + '\'' +
+                ", state=" + state.get() +
+                ", restarts=" + restarts.get() +
+                ", startupMs=" + startupMs.get() +
+                '}';
+    }
+}
@@ -0,0 +1,346 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.OsArch;
+import berlin.yuna.clu.model.OsArchType;
+import berlin.yuna.clu.model.OsType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Capabilities of the current system for sizing pools and choosing binaries <br>
+ * Every probe runs once on its first call and is cached afterwards, so unused probes cost nothing.
+ * Reads cgroup v1/v2 limits and /proc on linux, other systems fall back to the JVM view.
+ * <br>
+ * example: <br>
+ * <pre>{@code
+ * final SystemInfo info = SystemUtil.systemInfo();
+ * final int threads = info.availableCores() * 2;
+ * final boolean avx2 = info.hasCpuFeature("avx2");
+ * }</pre>
+ */
+@SuppressWarnings({"unused"})
+public class SystemInfo {
+
+    private static final long UNLIMITED = 1L << 60;
+
+    private final Path proc;
+    private final Path cgroup;
+    private final Path root;
+    private final Lazy<List<String[]>> cgroups = new Lazy<>(this::readCgroups);
+    private final Lazy<Double> cpuQuota = new Lazy<>(this::readCpuQuota);
+    private final Lazy<Integer> availableCores = new Lazy<>(this::readAvailableCores);
+    private final Lazy<Long> memoryLimitBytes = new Lazy<>(this::readMemoryLimit);
+    private final Lazy<Long> totalMemoryBytes = new Lazy<>(this::readTotalMemory);
+    private final Lazy<Boolean> container = new Lazy<>(this::readContainer);
+    private final Lazy<Long> pageSize = new Lazy<>(this::readPageSize);
+    private final Lazy<Set<String>> cpuFeatures = new Lazy<>(this::readCpuFeatures);
+
+    /**
+     * Value computed on first access
+     */
+    private static class Lazy<T> implements Supplier<T> {
+        private final Supplier<T> supplier;
+        private volatile T value;
+
+        Lazy(final Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public T get() {
+            T result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        result = supplier.get();
+                        value = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    SystemInfo() {
+        this(Path.of("/proc"), Path.of("/sys/fs/cgroup"), Path.of("/"));
+    }
+
+    /**
+     * @param proc   location of /proc
+     * @param cgroup location of /sys/fs/cgroup
+     * @param root   file system root (container marker files)
+     */
+    SystemInfo(final Path proc, final Path cgroup, final Path root) {
+        this.proc = proc;
+        this.cgroup = cgroup;
+        this.root = root;
+    }
+
+    public OsType os() {
+        return SystemUtil.OS;
+    }
+
+    public OsArch arch() {
+        return SystemUtil.OS_ARCH;
+    }
+
+    public OsArchType archType() {
+        return SystemUtil.OS_ARCH_TYPE;
+    }
+
+    /**
+     * @return usable cores - processors of the JVM limited by the cgroup CPU quota
+     */
+    public int availableCores() {
+        return availableCores.get();
+    }
+
+    /**
+     * @return cgroup CPU quota in cores (e.g. 1.5) - -1 if not limited
+     */
+    public double cpuQuota() {
+        return cpuQuota.get();
+    }
+
+    /**
+     * @return cgroup memory limit - -1 if not limited
+     */
+    public long memoryLimitBytes() {
+        return memoryLimitBytes.get();
+    }
+
+    /**
+     * @return physical memory limited by the cgroup memory limit - -1 if unknown
+     */
+    public long totalMemoryBytes() {
+        return totalMemoryBytes.get();
+    }
+
+    /**
+     * Not cached as it changes all the time
+     *
+     * @return memory available for new allocations (MemAvailable or the rest of the cgroup limit) - -1 if unknown
+     */
+    public long availableMemoryBytes() {
+        final long available = meminfo("MemAvailable").orElseGet(() -> bean().map(bean -> bean.getFreeMemorySize()).orElse(-1L));
+        final long limit = memoryLimitBytes();
+        if (limit < 0) {
+            return available;
+        }
+        final long rest = cgroupFile("memory", "memory.current", "memory.usage_in_bytes").map(SystemInfo::toLong).map(used -> Math.max(0, limit - used)).orElse(limit);
+        return available < 0 ? rest : Math.min(available, rest);
+    }
+
+    /**
+     * @return true if running in a container (docker, podman, kubernetes, lxc, ...)
+     */
+    public boolean container() {
+        return container.get();
+    }
+
+    /**
+     * @return memory page size in bytes (default 4096)
+     */
+    public long pageSize() {
+        return pageSize.get();
+    }
+
+    /**
+     * @return lower case CPU feature flags (e.g. avx2, sse4_2 on x86 or neon, asimd on arm)
+     */
+    public Set<String> cpuFeatures() {
+        return cpuFeatures.get();
+    }
+
+    /**
+     * @param feature flag like avx2 or neon (case-insensitive) - arm64 reports neon as asimd
+     * @return true if the CPU supports the feature
+     */
+    public boolean hasCpuFeature(final String feature) {
+        final var name = feature.toLowerCase(Locale.ROOT);
+        final var features = cpuFeatures();
+        return features.contains(name) || ("neon".equals(name) && features.contains("asimd"));
+    }
+
+    private double readCpuQuota() {
+        final var v2 = cgroupFile("cpu", "cpu.max");
+        if (v2.isPresent()) {
+            final var parts = v2.get().split("\\s+");
+            return parts.length == 2 && !"max".equals(parts[0]) ? toLong(parts[0]) / (double) toLong(parts[1]) : -1d;
+        }
+        final long quota = cgroupFile("cpu", "cpu.cfs_quota_us").map(SystemInfo::toLong).orElse(-1L);
+        final long period = cgroupFile("cpu", "cpu.cfs_period_us").map(SystemInfo::toLong).orElse(-1L);
+        return quota > 0 && period > 0 ? quota / (double) period : -1d;
+    }
+
+    private int readAvailableCores() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final double quota = cpuQuota();
+        return quota > 0 ? Math.max(1, Math.min(processors, (int) Math.ceil(quota))) : processors;
+    }
+
+    private long readMemoryLimit() {
+        return cgroupFile("memory", "memory.max", "memory.limit_in_bytes")
+                .map(value -> "max".equals(value) ? -1L : toLong(value))
+                .filter(value -> value > 0 && value < UNLIMITED)
+                .orElse(-1L);
+    }
+
+    private long readTotalMemory() {
+        final long total = meminfo("MemTotal").orElseGet(() -> bean().map(bean -> bean.getTotalMemorySize()).orElse(-1L));
+        final long limit = memoryLimitBytes();
+        return limit > 0 && (total < 0 || limit < total) ? limit : total;
+    }
+
+    private boolean readContainer() {
+        if (Files.exists(root.resolve(".dockerenv")) || Files.exists(root.resolve("run").resolve(".containerenv"))
+                || System.getenv("KUBERNETES_SERVICE_HOST") != null || System.getenv("container") != null) {
+            return true;
+        }
+        return read(proc.resolve("1").resolve("cgroup"))
+                .map(content -> Stream.of("docker", "kubepods", "containerd", "libpod", "lxc").anyMatch(content::contains))
+                .orElse(false);
+    }
+
+    private long readPageSize() {
+        try (BufferedReader reader = Files.newBufferedReader(proc.resolve("self").resolve("smaps"), UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("KernelPageSize:")) {
+                    return kiloBytes(line);
+                }
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // default page size
+        }
+        return 4096L;
+    }
+
+    private Set<String> readCpuFeatures() {
+        try (BufferedReader reader = Files.newBufferedReader(proc.resolve("cpuinfo"), UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int colon = line.indexOf(':');
+                if (colon > 0 && (line.startsWith("flags") || line.startsWith("Features"))) {
+                    final Set<String> result = Arrays.stream(line.substring(colon + 1).trim().split("\\s+"))
+                            .filter(flag -> !flag.isEmpty())
+                            .map(flag -> flag.toLowerCase(Locale.ROOT))
+                            .collect(Collectors.toCollection(LinkedHashSet::new));
+                    return Collections.unmodifiableSet(result);
+                }
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // no cpuinfo
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * @return [controllers, path] of /proc/self/cgroup
+     */
+    private List<String[]> readCgroups() {
+        final List<String[]> result = new ArrayList<>();
+        read(proc.resolve("self").resolve("cgroup")).ifPresent(content -> content.lines().forEach(line -> {
+            final var parts = line.split(":", 3);
+            if (parts.length == 3) {
+                result.add(new String[]{parts[1], parts[2]});
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * @return content of the first existing file of the controller in the cgroup of this process or the cgroup root
+     */
+    private Optional<String> cgroupFile(final String controller, final String... names) {
+        final List<Path> directories = new ArrayList<>();
+        for (String[] entry : cgroups.get()) {
+            final var relative = entry[1].startsWith("/") ? entry[1].substring(1) : entry[1];
+            if (entry[0].isEmpty()) {
+                directories.add(cgroup.resolve(relative));
+            } else if (Arrays.asList(entry[0].split(",")).contains(controller)) {
+                directories.add(cgroup.resolve(entry[0]).resolve(relative));
+                directories.add(cgroup.resolve(controller).resolve(relative));
+            }
+        }
+        directories.add(cgroup.resolve(controller));
+        directories.add(cgroup);
+        for (Path directory : directories) {
+            for (String name : names) {
+                final var content = read(directory.resolve(name)).map(String::trim);
+                if (content.isPresent()) {
+                    return content;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Long> meminfo(final String key) {
+        return read(proc.resolve("meminfo")).flatMap(content -> content.lines()
+                .filter(line -> line.startsWith(key + ":"))
+                .findFirst()
+                .map(SystemInfo::kiloBytes));
+    }
+
+    private static Optional<com.sun.management.OperatingSystemMXBean> bean() {
+        final var bean = ManagementFactory.getOperatingSystemMXBean();
+        return bean instanceof com.sun.management.OperatingSystemMXBean ? Optional.of((com.sun.management.OperatingSystemMXBean) bean) : Optional.empty();
+    }
+
+    private static Optional<String> read(final Path path) {
+        try {
+            return Files.isRegularFile(path) ? Optional.of(Files.readString(path, UTF_8)) : Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param line like "MemTotal:  16318664 kB"
+     */
+    private static long kiloBytes(final String line) {
+        final var parts = line.substring(line.indexOf(':') + 1).trim().split("\\s+");
+        return toLong(parts[0]) * (parts.length > 1 && "kB".equalsIgnoreCase(parts[1]) ? 1024 : 1);
+    }
+
+    private static long toLong(final String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SystemInfo{" +
+                "os=" + os() +
+                ", arch=" + arch() +
+                ", archType=" + archType() +
+                ", availableCores=" + availableCores() +
+                ", memoryLimitBytes=" + memoryLimitBytes() +
+                ", totalMemoryBytes=" + totalMemoryBytes() +
+                ", container=" + container() +
+                ", pageSize=" + pageSize() +
+                '}';
+    }
+}
@@ -1,33 +1,67 @@
 package berlin.yuna.clu.logic;
 
 
+import berlin.yuna.clu.model.FileContent;
+import berlin.yuna.clu.model.FileReadResult;
 import berlin.yuna.clu.model.OsArch;
 import berlin.yuna.clu.model.OsArchType;
 import berlin.yuna.clu.model.OsType;
-import berlin.yuna.clu.model.ThrowingFunction;
+import berlin.yuna.clu.model.SearchMatch;
+import berlin.yuna.clu.model.TreeResult;
+import berlin.yuna.clu.model.WriteOption;
 import berlin.yuna.clu.model.exception.FileCopyException;
 import berlin.yuna.clu.model.exception.FileNotReadableException;
+import berlin.yuna.clu.model.exception.FileWriteException;
+import berlin.yuna.clu.util.ArchiveExtractor;
+import berlin.yuna.clu.util.AtomicFileWriter;
+import berlin.yuna.clu.util.CharsetDetector;
+import berlin.yuna.clu.util.ContentSearch;
+import berlin.yuna.clu.util.FileContentCache;
+import berlin.yuna.clu.util.MappedLineSpliterator;
+import berlin.yuna.clu.util.ParallelTree;
+import berlin.yuna.clu.util.PathIndex;
+import berlin.yuna.clu.util.ResourceExtractor;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.MalformedInputException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.PosixFilePermission;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import static java.nio.charset.Charset.defaultCharset;
-import static java.nio.charset.StandardCharsets.ISO_8859_1;
-import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
 import static java.nio.charset.StandardCharsets.UTF_16;
 import static java.nio.charset.StandardCharsets.UTF_16BE;
 import static java.nio.charset.StandardCharsets.UTF_16LE;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_READ;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_READ;
 import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
 import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
 import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
@@ -40,15 +74,94 @@ public class SystemUtil {
     public static final OsType OS = OsType.of(System.getProperty("os.name"));
     public static final OsArch OS_ARCH = OsArch.of(System.getProperty("os.arch"));
     public static final OsArchType OS_ARCH_TYPE = OsArchType.of(System.getProperty("os.arch"));
+    public static final int READ_CONCURRENCY = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final SystemInfo SYSTEM_INFO = new SystemInfo();
+    private static final AtomicReference<FileContentCache> FILE_CACHE = new AtomicReference<>();
+    private static final AtomicReference<Workspace> WORKSPACE = new AtomicReference<>();
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
 
     /**
      * Sets silent file permissions (PosixFilePermissions will be mapped to filePermissions as windows doesn't understand posix)
+     * The permissions are added to the existing ones in a single call on POSIX file systems
      *
      * @param path        Path to set permissions on
      * @param permissions permission list to set for the given Path
      * @return true if no error occurred and if permissions are set successfully
      */
     public static boolean setFilePermissions(final Path path, final PosixFilePermission... permissions) {
+        if (permissions.length == 0) {
+            return true;
+        } else if (!POSIX) {
+            return setFilePermissionsFallback(path, asList(permissions));
+        }
+        try {
+            final var view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+            final var result = EnumSet.copyOf(view.readAttributes().permissions());
+            if (result.addAll(asList(permissions))) {
+                view.setPermissions(result);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sets silent the exact file permissions like {@code chmod} in a single call (mapped to filePermissions on non POSIX file systems)
+     *
+     * @param path        Path to set permissions on
+     * @param permissions complete permission set for the given Path
+     * @return true if no error occurred and if permissions are set successfully
+     */
+    public static boolean setFilePermissions(final Path path, final Set<PosixFilePermission> permissions) {
+        if (!POSIX) {
+            return setFilePermissionsFallback(path, permissions);
+        }
+        try {
+            Files.setPosixFilePermissions(path, permissions);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sets the exact permissions recursively in parallel like {@code chmod -R}
+     * Directories get an additional execute permission for every read permission (like {@code chmod X}) to stay accessible
+     *
+     * @param path        file or directory to change
+     * @param permissions complete permission set for files
+     * @return changed files and directories with the failed paths
+     */
+    public static TreeResult setTreePermissions(final Path path, final Set<PosixFilePermission> permissions) {
+        final var directories = EnumSet.noneOf(PosixFilePermission.class);
+        directories.addAll(permissions);
+        if (permissions.contains(OWNER_READ)) {
+            directories.add(OWNER_EXECUTE);
+        }
+        if (permissions.contains(GROUP_READ)) {
+            directories.add(GROUP_EXECUTE);
+        }
+        if (permissions.contains(OTHERS_READ)) {
+            directories.add(OTHERS_EXECUTE);
+        }
+        return setTreePermissions(path, permissions, directories);
+    }
+
+    /**
+     * Sets the exact permissions recursively in parallel like {@code chmod -R} (symbolic links are skipped) <br>
+     * Non POSIX file systems only get the granted owner read, write and execute flags (owner only if group and others lack them)
+     *
+     * @param path        file or directory to change
+     * @param files       complete permission set for files
+     * @param directories complete permission set for directories
+     * @return changed files and directories with the failed paths
+     */
+    public static TreeResult setTreePermissions(final Path path, final Set<PosixFilePermission> files, final Set<PosixFilePermission> directories) {
+        return ParallelTree.permissions(path, files, directories);
+    }
+
+    private static boolean setFilePermissionsFallback(final Path path, final Collection<PosixFilePermission> permissions) {
         final var destination = path.toFile();
         for (PosixFilePermission permission : permissions) {
             if (!setFilePermission(destination, permission)) {
@@ -60,21 +173,56 @@ public class SystemUtil {
 
     /**
      * Copies a source file to temp path as the resources are not accessible/executable
+     * Extraction is atomic, verified by sha256 and locked across processes - outdated files are replaced
      *
      * @param clazz        Caller class to find its resource / get its classloader
      * @param relativePath relative resource file path
      * @return temp path from copied file output
      */
     public static Path copyResourceToTemp(final Class<?> clazz, final String relativePath) {
-        final var tmpFile = new File(TMP_DIR, new File(relativePath).getName());
-        if (!tmpFile.exists()) {
-            try {
-                Files.copy(Objects.requireNonNull(clazz.getClassLoader().getResourceAsStream(relativePath)), tmpFile.toPath());
-            } catch (Exception e) {
-                throw new FileCopyException("Could not copy file", e);
-            }
+        return ResourceExtractor.extract(clazz.getClassLoader(), relativePath, new File(TMP_DIR, new File(relativePath).getName()).toPath());
+    }
+
+    /**
+     * Extracts the best bundled variant of a binary for the current OS, architecture and CPU features and makes it executable
+     * e.g. bin/tool-linux-amd64-avx2 before bin/tool-linux-amd64 before bin/tool (see {@link NativeResolver} for the naming patterns)
+     *
+     * @param clazz Caller class to find its resource / get its classloader
+     * @param base  resource path without the platform suffix
+     * @return path of the executable
+     */
+    public static Path resolveNative(final Class<?> clazz, final String base) {
+        return new NativeResolver(clazz, base).resolve();
+    }
+
+    /**
+     * Extracts a resource directory (from the class path directory or jar) with its structure into a directory
+     * Files are written in parallel, unchanged files (same size and last modified time) are skipped
+     *
+     * @param clazz        Caller class to find its resource / get its classloader
+     * @param resourcePath relative resource directory path
+     * @param target       destination directory
+     * @return written files and bytes, unchanged files as skipped and the failed paths
+     */
+    public static TreeResult extractResources(final Class<?> clazz, final String resourcePath, final Path target) {
+        return ArchiveExtractor.extractDirectory(clazz.getClassLoader(), resourcePath, target);
+    }
+
+    /**
+     * Extracts a bundled zip, tar or tar.gz resource into a directory in a single streaming pass
+     * Tar modes are kept, zip entries with a shebang or native binary header become executable
+     *
+     * @param clazz        Caller class to find its resource / get its classloader
+     * @param resourcePath relative resource archive path
+     * @param target       destination directory
+     * @return written files and bytes, unchanged files as skipped and the failed paths
+     */
+    public static TreeResult extractArchive(final Class<?> clazz, final String resourcePath, final Path target) {
+        final var stream = clazz.getClassLoader().getResourceAsStream(resourcePath);
+        if (stream == null) {
+            throw new FileCopyException("Could not extract archive", new IOException("Resource not found [" + resourcePath + "]"));
         }
-        return tmpFile.toPath();
+        return ArchiveExtractor.extract(stream, target);
     }
 
     /**
@@ -84,25 +232,32 @@ public class SystemUtil {
      * @return File content
      */
     public static String readFile(final Path path) {
-        try {
-            return tryCharsets(charset -> Files.readString(path, charset));
-        } catch (Exception e) {
-            throw new FileNotReadableException("Could not read file [" + path + "]", e);
-        }
+        return readFileContent(path).getContent();
     }
 
-    private static <T> T tryCharsets(final ThrowingFunction<Charset, T> function) throws Exception {
-        final var latestException = new AtomicReference<Exception>(null);
-        for (Charset charset : asList(defaultCharset(), UTF_8, UTF_16, UTF_16BE, UTF_16LE, ISO_8859_1, US_ASCII)) {
-            try {
-                return function.acceptThrows(charset);
-            } catch (Exception e) {
-                latestException.set(e);
-            } catch (Error e) {
-                latestException.set(new MalformedInputException(2));
+    /**
+     * Reads in a whole file (tries every charset of {@link CharsetDetector#CHARSETS})
+     * The file is read once, a byte order mark wins, other charsets are validated on the buffer
+     * Served from the {@link SystemUtil#fileCache()} when enabled
+     *
+     * @param path Filepath to read from
+     * @return File content with the detected charset
+     */
+    public static FileContent readFileContent(final Path path) {
+        try {
+            final var cache = FILE_CACHE.get();
+            if (cache != null) {
+                return cache.read(path);
+            }
+            final var bytes = Files.readAllBytes(path);
+            final var decoded = CharsetDetector.decode(ByteBuffer.wrap(bytes));
+            if (decoded == null) {
+                throw new MalformedInputException(bytes.length);
             }
+            return new FileContent(path, decoded.charset(), decoded.chars().toString(), bytes.length);
+        } catch (Exception e) {
+            throw new FileNotReadableException("Could not read file [" + path + "]", e);
         }
-        throw latestException.get();
     }
 
     /**
@@ -112,35 +267,352 @@ public class SystemUtil {
      * @return File content line wise
      */
     public static List<String> readFileLines(final Path path) {
+        return toLines(readFile(path));
+    }
+
+    /**
+     * Streams the lines of a file lazily from memory mapped segments (for files larger than the heap)
+     * The charset is detected with the same fallback chain as {@link SystemUtil#readFile(Path)}.
+     * The stream splits at line boundaries, so {@link Stream#parallel()} scales across cores.
+     * The stream needs to be closed to release the file handle.
+     *
+     * @param path Filepath to read from
+     * @return lazy stream of lines
+     */
+    public static Stream<String> streamFileLines(final Path path) {
+        FileChannel channel = null;
         try {
-            return tryCharsets(charset -> Files.readAllLines(path, charset));
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            final var charset = CharsetDetector.detect(channel);
+            if (charset == null) {
+                throw new MalformedInputException(0);
+            }
+            final var head = channel.map(READ_ONLY, 0, Math.min(channel.size(), 4));
+            // lines are decoded with UTF-16BE/LE, so the UTF-16 byte order mark is skipped as well
+            final long start = charset.equals(UTF_16)
+                    ? Math.max(CharsetDetector.bomLength(head, UTF_16BE), CharsetDetector.bomLength(head, UTF_16LE))
+                    : CharsetDetector.bomLength(head, charset);
+            final var spliterator = new MappedLineSpliterator(channel, charset, start, channel.size());
+            final var closeable = channel;
+            return StreamSupport.stream(spliterator, false).onClose(() -> {
+                try {
+                    closeable.close();
+                } catch (IOException ignored) {
+                    // already closed
+                }
+            });
         } catch (Exception e) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException ignored) {
+                // already closed
+            }
             throw new FileNotReadableException("Could not read file [" + path + "]", e);
         }
     }
 
+    /**
+     * Writes a file atomically as UTF-8 (temp file and rename - readers never see a partial file)
+     *
+     * @param path    Filepath to write to
+     * @param content text to write (encoded in chunks without an intermediate copy)
+     * @param options durability options - fsync of file, directory or batched directory fsync
+     * @return given path
+     * @throws FileWriteException on any write, sync or rename error
+     */
+    public static Path writeFile(final Path path, final CharSequence content, final WriteOption... options) {
+        return writeFile(path, content, UTF_8, options);
+    }
+
+    /**
+     * Writes a file atomically (temp file and rename - readers never see a partial file)
+     *
+     * @param path    Filepath to write to
+     * @param content text to write (encoded in chunks without an intermediate copy)
+     * @param charset charset to encode with
+     * @param options durability options - fsync of file, directory or batched directory fsync
+     * @return given path
+     * @throws FileWriteException on any write, sync or rename error
+     */
+    public static Path writeFile(final Path path, final CharSequence content, final Charset charset, final WriteOption... options) {
+        try {
+            return AtomicFileWriter.write(path, content, charset, asSet(options));
+        } catch (Exception e) {
+            throw new FileWriteException("Could not write file [" + path + "]", e);
+        }
+    }
+
+    /**
+     * Writes a file atomically (temp file and rename - readers never see a partial file)
+     *
+     * @param path    Filepath to write to
+     * @param content bytes from position to limit (the buffer position is not modified)
+     * @param options durability options - fsync of file, directory or batched directory fsync
+     * @return given path
+     * @throws FileWriteException on any write, sync or rename error
+     */
+    public static Path writeFile(final Path path, final ByteBuffer content, final WriteOption... options) {
+        try {
+            return AtomicFileWriter.write(path, content, asSet(options));
+        } catch (Exception e) {
+            throw new FileWriteException("Could not write file [" + path + "]", e);
+        }
+    }
+
+    private static Set<WriteOption> asSet(final WriteOption... options) {
+        return options.length == 0 ? EnumSet.noneOf(WriteOption.class) : EnumSet.copyOf(asList(options));
+    }
+
+    /**
+     * Shared workspace for scratch directories (RAM backed if available) - deleted on JVM shutdown
+     *
+     * @return shared workspace
+     */
+    public static Workspace workspace() {
+        final var current = WORKSPACE.get();
+        if (current != null) {
+            return current;
+        }
+        final var workspace = new Workspace();
+        if (WORKSPACE.compareAndSet(null, workspace)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(workspace::close, "clu-workspace-shutdown"));
+            return workspace;
+        }
+        return WORKSPACE.get();
+    }
+
+    /**
+     * @return content cache used by {@link SystemUtil#readFile(Path)} and {@link SystemUtil#readFileLines(Path)} - null if disabled
+     */
+    public static FileContentCache fileCache() {
+        return FILE_CACHE.get();
+    }
+
+    /**
+     * Enables a new content cache for {@link SystemUtil#readFile(Path)} and {@link SystemUtil#readFileLines(Path)}
+     *
+     * @param maxBytes maximum weight of the cached contents
+     * @return new cache with its metrics
+     */
+    public static FileContentCache fileCache(final long maxBytes) {
+        return fileCache(new FileContentCache(maxBytes));
+    }
+
+    /**
+     * @param cache content cache to use - null disables caching
+     * @return given cache
+     */
+    public static FileContentCache fileCache(final FileContentCache cache) {
+        FILE_CACHE.set(cache);
+        return cache;
+    }
+
+    /**
+     * Reads files concurrently with {@link SystemUtil#READ_CONCURRENCY} parallel reads
+     *
+     * @param paths Filepaths to read from
+     * @return contents and per file errors
+     * @see SystemUtil#readFiles(Collection, int)
+     */
+    public static FileReadResult readFiles(final Collection<Path> paths) {
+        return readFiles(paths, READ_CONCURRENCY);
+    }
+
+    /**
+     * Reads files concurrently (for many small files where sequential reads are bound by I/O latency)
+     * Each file uses the same charset detection as {@link SystemUtil#readFileContent(Path)}.
+     * A failing file doesn't stop the others, its error is reported in {@link FileReadResult#getErrors()}.
+     *
+     * @param paths       Filepaths to read from
+     * @param concurrency maximum number of parallel reads
+     * @return contents and per file errors
+     */
+    public static FileReadResult readFiles(final Collection<Path> paths, final int concurrency) {
+        final long start = System.currentTimeMillis();
+        final var unique = new ArrayList<>(new LinkedHashSet<>(paths));
+        final int threads = Math.max(1, Math.min(concurrency, unique.size()));
+        final var executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final var thread = new Thread(runnable, "clu-read-files");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final var futures = new ArrayList<Future<FileContent>>(unique.size());
+            unique.forEach(path -> futures.add(executor.submit(() -> readFileContent(path))));
+            final var contents = new LinkedHashMap<Path, FileContent>();
+            final var errors = new LinkedHashMap<Path, RuntimeException>();
+            long bytes = 0;
+            for (int i = 0; i < unique.size(); i++) {
+                try {
+                    final var content = futures.get(i).get();
+                    contents.put(unique.get(i), content);
+                    bytes += content.getSize();
+                } catch (ExecutionException e) {
+                    errors.put(unique.get(i), e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new FileNotReadableException("Could not read file [" + unique.get(i) + "]", e.getCause()));
+                }
+            }
+            return new FileReadResult(contents, errors, bytes, System.currentTimeMillis() - start, threads);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileNotReadableException("Interrupted while reading files", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Deletes silent a directory
      *
      * @param path directory to delete
      * @return false on exception and any deletion error
+     * @see SystemUtil#deleteTree(Path)
      */
     public static boolean deleteDirectory(final Path path) {
-        final var success = new AtomicBoolean(true);
-
-        try (final var stream = Files.walk(path)) {
-            stream.sorted(Comparator.reverseOrder())
-                    .forEach(file -> {
-                        try {
-                            Files.delete(file);
-                        } catch (IOException e) {
-                            success.set(false);
-                        }
-                    });
-        } catch (IOException ex) {
-            return false;
-        }
-        return success.get();
+        return deleteTree(path).isSuccess();
+    }
+
+    /**
+     * Deletes a file or a directory with all its content in parallel (fork/join per subdirectory, symbolic links are not followed)
+     *
+     * @param path file or directory to delete
+     * @return deleted files, directories and bytes with the failed paths
+     */
+    public static TreeResult deleteTree(final Path path) {
+        return ParallelTree.delete(path);
+    }
+
+    /**
+     * Copies a file or directory tree in parallel without spawning {@code cp -r} (zero-copy {@link FileChannel#transferTo})
+     * POSIX permissions and last modified times are preserved, symbolic links are copied as links
+     *
+     * @param source file or directory to copy
+     * @param target destination path
+     * @return copied files, directories and bytes with the failed paths
+     */
+    public static TreeResult copyTree(final Path source, final Path target) {
+        return ParallelTree.copy(source, target, false);
+    }
+
+    /**
+     * Copies only new and changed files (size or last modified time differ) like {@code rsync -a} without {@code --delete}
+     *
+     * @param source file or directory to sync
+     * @param target destination path
+     * @return copied files and bytes, unchanged files as {@link TreeResult#getSkipped()} and the failed paths
+     */
+    public static TreeResult syncTree(final Path source, final Path target) {
+        return ParallelTree.copy(source, target, true);
+    }
+
+    /**
+     * Finds files and directories by glob in parallel without spawning {@code find}
+     *
+     * @param root directory to search in
+     * @param glob glob of the file name (e.g. {@code *.java}) or of the relative path if it contains a slash
+     * @return lazy unordered stream of matches (close it to stop the walk early)
+     */
+    public static Stream<Path> findFiles(final Path root, final String glob) {
+        return findFiles(root, glob, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds files and directories by glob in parallel without spawning {@code find}
+     *
+     * @param root     directory to search in
+     * @param glob     glob of the file name (e.g. {@code *.java}) or of the relative path if it contains a slash
+     * @param maxDepth maximum directory depth to descend (1 = only direct children)
+     * @return lazy unordered stream of matches (close it to stop the walk early)
+     */
+    public static Stream<Path> findFiles(final Path root, final String glob, final int maxDepth) {
+        return findFiles(root, ParallelTree.glob(root, glob), maxDepth);
+    }
+
+    /**
+     * Finds files and directories in parallel without spawning {@code find}
+     *
+     * @param root     directory to search in
+     * @param filter   filter on the path and its attributes (symbolic links are not followed)
+     * @param maxDepth maximum directory depth to descend (1 = only direct children)
+     * @return lazy unordered stream of matches (close it to stop the walk early)
+     */
+    public static Stream<Path> findFiles(final Path root, final BiPredicate<Path, BasicFileAttributes> filter, final int maxDepth) {
+        return ParallelTree.find(root, maxDepth, filter);
+    }
+
+    /**
+     * Searches UTF-8 files for a literal like {@code grep -F} without spawning a process (memory mapped, parallel chunks)
+     *
+     * @param files   files to search in
+     * @param literal text to find
+     * @param maxHits stops the search after the given number of matching lines
+     * @return lazy stream of matching lines - in line order per file (close it to stop the search early)
+     */
+    public static Stream<SearchMatch> searchFiles(final Collection<Path> files, final String literal, final int maxHits) {
+        return ContentSearch.literal(files, literal, UTF_8, maxHits);
+    }
+
+    /**
+     * Searches UTF-8 files for a regex like {@code grep -E} without spawning a process (memory mapped, parallel chunks)
+     *
+     * @param files   files to search in
+     * @param regex   pattern to find in a line
+     * @param maxHits stops the search after the given number of matching lines
+     * @return lazy stream of matching lines - in line order per file (close it to stop the search early)
+     */
+    public static Stream<SearchMatch> searchFiles(final Collection<Path> files, final Pattern regex, final int maxHits) {
+        return ContentSearch.regex(files, regex, UTF_8, maxHits);
+    }
+
+    /**
+     * Sums files, directories and bytes in parallel without spawning {@code du}
+     *
+     * @param path file or directory to measure
+     * @return counts and apparent size in bytes
+     */
+    public static TreeResult treeSize(final Path path) {
+        return treeSize(path, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sums files, directories and bytes in parallel without spawning {@code du}
+     *
+     * @param path     file or directory to measure
+     * @param maxDepth maximum directory depth to descend (0 = only the given path)
+     * @return counts and apparent size in bytes
+     */
+    public static TreeResult treeSize(final Path path, final int maxDepth) {
+        return ParallelTree.size(path, maxDepth);
+    }
+
+    /**
+     * Extends {@link SystemUtil#OS}, {@link SystemUtil#OS_ARCH} and {@link SystemUtil#OS_ARCH_TYPE} with cores, memory, container and CPU features
+     *
+     * @return shared system snapshot - every probe runs once on its first call
+     */
+    public static SystemInfo systemInfo() {
+        return SYSTEM_INFO;
+    }
+
+    /**
+     * Resolves an executable like {@code which} / {@code where} without spawning a process (cached, see {@link PathIndex})
+     *
+     * @param name executable name
+     * @return absolute path of the first executable on the {@code PATH}
+     */
+    public static Optional<Path> which(final String name) {
+        return PathIndex.system().which(name);
+    }
+
+    /**
+     * Resolves many executables at once e.g. to probe the tools on startup
+     *
+     * @param names executable names
+     * @return absolute paths of the found executables in the order of the given names
+     */
+    public static Map<String, Path> which(final Collection<String> names) {
+        return PathIndex.system().which(names);
     }
 
     /**
@@ -167,6 +639,29 @@ public class SystemUtil {
     private SystemUtil() {
     }
 
+    /**
+     * Splits like {@link java.io.BufferedReader#readLine()} at \n, \r or \r\n
+     */
+    private static List<String> toLines(final String content) {
+        final var result = new ArrayList<String>();
+        final int length = content.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = content.charAt(i);
+            if (c == '\n' || c == '\r') {
+                result.add(content.substring(start, i));
+                if (c == '\r' && i + 1 < length && content.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            result.add(content.substring(start));
+        }
+        return result;
+    }
+
     private static boolean setFilePermission(final File destination, final PosixFilePermission permission) {
         boolean successState = false;
         switch (permission) {
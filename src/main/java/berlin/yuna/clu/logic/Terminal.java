@@ -1,24 +1,37 @@
 package berlin.yuna.clu.logic;
 
 
+import berlin.yuna.clu.model.LimitViolation;
 import berlin.yuna.clu.model.OsType;
+import berlin.yuna.clu.model.ProcessMetrics;
 import berlin.yuna.clu.model.exception.TerminalExecutionException;
+import berlin.yuna.clu.util.ProcessSampler;
 import berlin.yuna.clu.util.StreamGobbler;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import static berlin.yuna.clu.model.LimitViolation.CPU_TIME;
+import static berlin.yuna.clu.model.LimitViolation.MEMORY;
+import static berlin.yuna.clu.model.LimitViolation.NONE;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
@@ -26,14 +39,30 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 @SuppressWarnings({"unused", "UnusedReturnValue"})
 public class Terminal {
 
+    private static final int SIGABRT = 128 + 6;
+    private static final int SIGKILL = 128 + 9;
+    private static final int SIGSEGV = 128 + 11;
+    private static final int SIGXCPU = 128 + 24;
+    private static final String SHELL_SYNTAX = "|&;<>()$`\\\"'*?[]{}~#=%!\n";
+
     private final AtomicLong timeoutMs = new AtomicLong(-1);
     private final AtomicLong waitForMs = new AtomicLong(5);
+    private final AtomicLong metricsIntervalMs = new AtomicLong(100);
     private final AtomicBoolean breakOnError = new AtomicBoolean(false);
+    private final AtomicBoolean directExec = new AtomicBoolean(false);
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final AtomicInteger status = new AtomicInteger(0);
+    private final AtomicInteger nice = new AtomicInteger(0);
+    private final AtomicLong memoryLimitBytes = new AtomicLong(-1);
+    private final AtomicLong cpuTimeLimitSec = new AtomicLong(-1);
+    private final AtomicReference<int[]> cpuAffinity = new AtomicReference<>(new int[0]);
+    private final AtomicReference<LimitViolation> limitViolation = new AtomicReference<>(NONE);
+    private final AtomicReference<String> owner = new AtomicReference<>();
     private final CommandOutput commandOutput = new CommandOutput();
     private final CommandOutput tmpOutput = new CommandOutput();
+    private final List<Consumer<ProcessMetrics>> consumerMetrics = new CopyOnWriteArrayList<>();
     private Process process;
+    private ProcessSampler sampler;
     private File dir = new File(System.getProperty("user.dir"));
 
     /**
@@ -45,9 +74,17 @@ public class Terminal {
     public static Terminal copyOf(final Terminal terminal) {
         final var result = new Terminal();
         result.breakOnError.set(terminal.breakOnError.get());
+        result.directExec.set(terminal.directExec.get());
+        result.tmpOutput.collect.set(terminal.tmpOutput.collect.get());
         result.timeoutMs.set(terminal.timeoutMs.get());
         result.status.set(terminal.status.get());
         result.waitForMs.set(terminal.waitForMs.get());
+        result.metricsIntervalMs.set(terminal.metricsIntervalMs.get());
+        result.nice.set(terminal.nice.get());
+        result.memoryLimitBytes.set(terminal.memoryLimitBytes.get());
+        result.cpuTimeLimitSec.set(terminal.cpuTimeLimitSec.get());
+        result.cpuAffinity.set(terminal.cpuAffinity.get());
+        result.owner.set(terminal.owner.get());
         result.dir(terminal.dir);
         return result;
     }
@@ -83,6 +120,151 @@ public class Terminal {
         return this;
     }
 
+    /**
+     * @param consumerMetrics consumer for the {@link ProcessMetrics} of each finished command
+     * @return Terminal
+     */
+    @SafeVarargs
+    public final Terminal consumerMetrics(final Consumer<ProcessMetrics>... consumerMetrics) {
+        this.consumerMetrics.addAll(asList(consumerMetrics));
+        return this;
+    }
+
+    /**
+     * @return sample interval in milliseconds
+     * @see Terminal#metricsIntervalMs(long)
+     */
+    public long metricsIntervalMs() {
+        return metricsIntervalMs.get();
+    }
+
+    /**
+     * Interval to sample cpu, memory, context switches and io of the process tree from /proc (linux only)
+     * Default : 100 - values &lt; 1 disable sampling, only the duration is recorded
+     *
+     * @param metricsIntervalMs sample interval in milliseconds
+     * @return Terminal
+     */
+    public Terminal metricsIntervalMs(final long metricsIntervalMs) {
+        this.metricsIntervalMs.set(metricsIntervalMs);
+        return this;
+    }
+
+    /**
+     * @return resource usage of the last finished command - null when no command has finished yet
+     */
+    public ProcessMetrics metrics() {
+        return sampler == null ? null : sampler.metrics();
+    }
+
+    /**
+     * @return owner label for the {@link ProcessRegistry} - null means the name of the executing thread
+     * @see Terminal#owner(String)
+     */
+    public String owner() {
+        return owner.get();
+    }
+
+    /**
+     * @param owner owner label of the started processes in the {@link ProcessRegistry}
+     * @return Terminal
+     */
+    public Terminal owner(final String owner) {
+        this.owner.set(owner);
+        return this;
+    }
+
+    /**
+     * @return scheduling priority
+     * @see Terminal#nice(int)
+     */
+    public int nice() {
+        return nice.get();
+    }
+
+    /**
+     * Scheduling priority for the next commands (linux only, wraps the command with `nice -n`)
+     * Default : 0 (not applied)
+     *
+     * @param nice niceness from -20 (highest priority) to 19 (lowest priority)
+     * @return Terminal
+     */
+    public Terminal nice(final int nice) {
+        this.nice.set(nice);
+        return this;
+    }
+
+    /**
+     * @return cpu ids the commands are bound to
+     * @see Terminal#cpuAffinity(int...)
+     */
+    public int[] cpuAffinity() {
+        return cpuAffinity.get().clone();
+    }
+
+    /**
+     * Binds the next commands to the given cpu ids (linux only, wraps the command with `taskset -c`)
+     * Default : empty (not applied)
+     *
+     * @param cpuIds cpu ids to run on
+     * @return Terminal
+     */
+    public Terminal cpuAffinity(final int... cpuIds) {
+        this.cpuAffinity.set(cpuIds == null ? new int[0] : cpuIds.clone());
+        return this;
+    }
+
+    /**
+     * @return address space limit in bytes
+     * @see Terminal#memoryLimitBytes(long)
+     */
+    public long memoryLimitBytes() {
+        return memoryLimitBytes.get();
+    }
+
+    /**
+     * Limits the address space of each process of the next commands (linux only, `prlimit --as` or `ulimit -v` as fallback)
+     * Default : -1 (not applied)
+     *
+     * @param memoryLimitBytes address space limit in bytes
+     * @return Terminal
+     */
+    public Terminal memoryLimitBytes(final long memoryLimitBytes) {
+        this.memoryLimitBytes.set(memoryLimitBytes);
+        return this;
+    }
+
+    /**
+     * @return cpu time limit in seconds
+     * @see Terminal#cpuTimeLimitSec(long)
+     */
+    public long cpuTimeLimitSec() {
+        return cpuTimeLimitSec.get();
+    }
+
+    /**
+     * Limits the cpu time of each process of the next commands (linux only, `prlimit --cpu` or `ulimit -t` as fallback)
+     * Default : -1 (not applied)
+     *
+     * @param cpuTimeLimitSec cpu time limit in seconds
+     * @return Terminal
+     */
+    public Terminal cpuTimeLimitSec(final long cpuTimeLimitSec) {
+        this.cpuTimeLimitSec.set(cpuTimeLimitSec);
+        return this;
+    }
+
+    /**
+     * Derived from the exit status only: SIGXCPU (or SIGKILL at the cpu time limit) is {@link LimitViolation#CPU_TIME},
+     * SIGABRT, SIGSEGV or SIGKILL with a memory limit is {@link LimitViolation#MEMORY}.
+     * Commands which handle a failed allocation and exit with a regular error code report {@link LimitViolation#NONE}.
+     *
+     * @return resource limit which most likely terminated the last command - {@link LimitViolation#NONE} if no limit was hit
+     */
+    public LimitViolation limitViolation() {
+        return limitViolation.get();
+    }
+
     /**
      * @return timeout in milliseconds
      * @see Terminal#timeoutMs(long)
@@ -132,6 +314,44 @@ public class Terminal {
         return dir;
     }
 
+    /**
+     * @return true if simple commands are started without a shell
+     */
+    public boolean directExec() {
+        return directExec.get();
+    }
+
+    /**
+     * Starts simple commands (no quotes, pipes, redirects, variables or wildcards) directly with the executable
+     * resolved by {@link SystemUtil#which(String)} instead of {@code sh -c} / {@code cmd.exe /c}. Executables with a path are resolved
+     * against {@link Terminal#dir()}. Saves the shell process per command, other commands and limits without {@code prlimit} still run in the shell.
+     *
+     * @param directExec true to skip the shell for simple commands (default false)
+     * @return Terminal
+     */
+    public Terminal directExec(final boolean directExec) {
+        this.directExec.set(directExec);
+        return this;
+    }
+
+    /**
+     * @return true if output lines are kept for {@link Terminal#consoleInfo()} and {@link Terminal#consoleError()}
+     */
+    public boolean collectOutput() {
+        return tmpOutput.collect.get();
+    }
+
+    /**
+     * Long-running commands which only stream to consumers can skip keeping their output in memory
+     *
+     * @param collectOutput false to only pass output lines to the consumers (default true)
+     * @return Terminal
+     */
+    public Terminal collectOutput(final boolean collectOutput) {
+        this.tmpOutput.collect.set(collectOutput);
+        return this;
+    }
+
     /**
      * @return wait time after command exited
      * @see Terminal#execute(String, Long)
@@ -239,11 +459,21 @@ public class Terminal {
     public synchronized Terminal execute(final String command, final Long waitForMs) {
         try {
             running.set(true);
+            ProcessRegistry.orphan(process);
             process = process(command);
+            // the exit callback must not keep the terminal reachable, see ProcessEntry#isOrphaned
+            final var processSampler = sampler;
+            final var isRunning = running;
+            final var terminalRef = new WeakReference<>(this);
             process.onExit().thenApply(p -> {
-                running.set(false);
-                if (waitForMs == null) {
-                    setStatus(command);
+                try {
+                    processSampler.finish();
+                } finally {
+                    isRunning.set(false);
+                }
+                final var terminal = terminalRef.get();
+                if (waitForMs == null && terminal != null) {
+                    terminal.setStatus(command);
                 }
                 return p;
             });
@@ -266,14 +496,37 @@ public class Terminal {
      * @throws IOException if an I/O error occurs
      */
     public Process process(final String command) throws IOException {
+        return process(command, emptyList(), () -> {
+        });
+    }
+
+    /**
+     * Starts an interactive session - stdin stays open to react on the output of the command
+     *
+     * @param command command to execute
+     * @return {@link ExpectSession} to send input and to await output patterns
+     */
+    public ExpectSession session(final String command) {
+        try {
+            return new ExpectSession(this, command);
+        } catch (IOException e) {
+            throw new TerminalExecutionException("Failed to start session [" + command + "] in dir [" + dir.getName() + "]", e);
+        }
+    }
+
+    Process process(final String command, final List<Consumer<CharSequence>> feed, final Runnable onStreamEnd) throws IOException {
         final var builder = new ProcessBuilder();
         builder.directory(dir);
         System.getProperties().forEach((key, value) -> builder.environment().put(key.toString(), value.toString()));
-        builder.command(addExecutor(SystemUtil.OS, command));
+        // the ulimit fallback of the limits needs the shell
+        final var direct = directExec.get() && !shellLimits() ? directCommand(command) : null;
+        builder.command(addLimits(SystemUtil.OS, direct != null ? direct : addExecutor(SystemUtil.OS, command)));
         final var result = builder.start();
+        ProcessRegistry.register(result, command, Optional.ofNullable(owner.get()).orElseGet(() -> Thread.currentThread().getName()), this);
+        sampler = ProcessSampler.start(result, command, metricsIntervalMs.get(), consumerMetrics);
 
-        Executors.newSingleThreadExecutor().submit(new StreamGobbler(result.getInputStream(), singletonList(tmpOutput::consoleInfo)));
-        Executors.newSingleThreadExecutor().submit(new StreamGobbler(result.getErrorStream(), singletonList(tmpOutput::consoleError)));
+        gobble(new StreamGobbler(result.getInputStream(), singletonList(tmpOutput::consoleInfo), feed), onStreamEnd);
+        gobble(new StreamGobbler(result.getErrorStream(), singletonList(tmpOutput::consoleError), feed), onStreamEnd);
 
         return result;
     }
@@ -300,6 +553,65 @@ public class Terminal {
         }
     }
 
+    /**
+     * @param command command to split
+     * @return command with the resolved executable - null if the command needs a shell or the executable is not on the path
+     */
+    String[] directCommand(final String command) {
+        if (command == null || command.chars().anyMatch(c -> SHELL_SYNTAX.indexOf(c) >= 0)) {
+            return null;
+        }
+        final var args = command.trim().split("\\s+");
+        if (args[0].isEmpty()) {
+            return null;
+        }
+        final var executable = args[0].indexOf('/') >= 0
+                ? Optional.of(dir.toPath().resolve(args[0])).filter(path -> Files.isRegularFile(path) && Files.isExecutable(path))
+                : SystemUtil.which(args[0]);
+        if (executable.isEmpty()) {
+            return null;
+        }
+        args[0] = executable.get().toString();
+        return args;
+    }
+
+    private boolean shellLimits() {
+        return SystemUtil.OS == OsType.OS_LINUX && (memoryLimitBytes.get() > 0 || cpuTimeLimitSec.get() > 0) && !onPath("prlimit");
+    }
+
+    String[] addLimits(final OsType os, final String[] command) {
+        if (os != OsType.OS_LINUX) {
+            return command;
+        }
+        final var result = new ArrayList<String>();
+        final var executor = command.clone();
+        if (nice.get() != 0 && onPath("nice")) {
+            result.addAll(asList("nice", "-n", String.valueOf(nice.get())));
+        }
+        if (cpuAffinity.get().length > 0 && onPath("taskset")) {
+            result.addAll(asList("taskset", "-c", Arrays.stream(cpuAffinity.get()).mapToObj(String::valueOf).collect(Collectors.joining(","))));
+        }
+        if (memoryLimitBytes.get() > 0 || cpuTimeLimitSec.get() > 0) {
+            if (onPath("prlimit")) {
+                result.add("prlimit");
+                if (memoryLimitBytes.get() > 0) {
+                    result.add("--as=" + memoryLimitBytes.get());
+                }
+                if (cpuTimeLimitSec.get() > 0) {
+                    // soft < hard to receive SIGXCPU instead of SIGKILL
+                    result.add("--cpu=" + cpuTimeLimitSec.get() + ":" + (cpuTimeLimitSec.get() + 1));
+                }
+                result.add("--");
+            } else {
+                executor[executor.length - 1] = (memoryLimitBytes.get() > 0 ? "ulimit -v " + Math.max(1, memoryLimitBytes.get() / 1024) + "; " : "")
+                        + (cpuTimeLimitSec.get() > 0 ? "ulimit -t " + cpuTimeLimitSec.get() + "; " : "")
+                        + executor[executor.length - 1];
+            }
+        }
+        result.addAll(asList(executor));
+        return result.toArray(new String[0]);
+    }
+
     public int messageCount() {
         return commandOutput.consoleInfo.size()
                 + commandOutput.consoleError.size()
@@ -307,6 +619,16 @@ public class Terminal {
                 + tmpOutput.consoleError.size();
     }
 
+    private static void gobble(final StreamGobbler gobbler, final Runnable onStreamEnd) {
+        Executors.newSingleThreadExecutor().submit(() -> {
+            try {
+                gobbler.run();
+            } finally {
+                onStreamEnd.run();
+            }
+        });
+    }
+
     private synchronized void waitUntilDone(final Process process, final long timeoutMs, final long waitForMs) {
         try {
             process.waitFor(timeoutMs < 1 ? 10000 : timeoutMs, MILLISECONDS);
@@ -328,23 +650,50 @@ public class Terminal {
     }
 
     private void setStatus(final String command) {
+        final var violation = limitViolation(exitValue(process));
         status.set(clearTmpOutput(process));
+        limitViolation.set(violation);
         handleConsoleError(breakOnError.get(), status.get(), command);
     }
 
     private void handleConsoleError(final boolean breakOnError, final int status, final String command) {
         if (breakOnError && status != 0) {
-            throw new IllegalStateException("Failed to run dir command [" + command + "] in dir [" + dir.getName() + "] output [" + tmpOutput.consoleError() + "]");
+            throw new IllegalStateException("Failed to run dir command [" + command + "] in dir [" + dir.getName() + "]"
+                    + (limitViolation.get() == NONE ? "" : " limit [" + limitViolation.get() + "]")
+                    + " output [" + tmpOutput.consoleError() + "]");
         }
     }
 
-    private int clearTmpOutput(final Process process) {
-        int outputStatus;
+    private LimitViolation limitViolation(final int exitValue) {
+        if (exitValue == 0 || SystemUtil.OS != OsType.OS_LINUX) {
+            return NONE;
+        } else if (cpuTimeLimitSec.get() > 0 && (exitValue == SIGXCPU || (exitValue == SIGKILL && cpuTimeExceeded()))) {
+            return CPU_TIME;
+        } else if (memoryLimitBytes.get() > 0 && (exitValue == SIGABRT || exitValue == SIGSEGV || exitValue == SIGKILL)) {
+            return MEMORY;
+        }
+        return NONE;
+    }
+
+    private boolean cpuTimeExceeded() {
+        final var metrics = metrics();
+        return metrics != null && metrics.getCpuMs() >= cpuTimeLimitSec.get() * 900;
+    }
+
+    private static boolean onPath(final String tool) {
+        return SystemUtil.which(tool).isPresent();
+    }
+
+    private static int exitValue(final Process process) {
         try {
-            outputStatus = process.exitValue();
+            return process.exitValue();
         } catch (IllegalThreadStateException e) {
-            outputStatus = 0;
+            return 0;
         }
+    }
+
+    private int clearTmpOutput(final Process process) {
+        final int outputStatus = exitValue(process);
         commandOutput.consoleInfo(tmpOutput.consoleInfo.toArray(new String[0]));
         if (outputStatus > 0) {
             commandOutput.consoleError(tmpOutput.consoleError.toArray(new String[0]));
@@ -371,6 +720,7 @@ public class Terminal {
         final List<String> consoleError = new ArrayList<>();
         final List<Consumer<String>> consumerInfo = new ArrayList<>();
         final List<Consumer<String>> consumerError = new ArrayList<>();
+        final AtomicBoolean collect = new AtomicBoolean(true);
 
         String consoleInfo() {
             return String.join("", consoleInfo);
@@ -390,7 +740,9 @@ public class Terminal {
 
         private void addToConsole(final String[] string, final List<String> consoleError, final List<Consumer<String>> consumerError) {
             stream(string).forEach(s -> {
-                consoleError.add(s);
+                if (collect.get()) {
+                    consoleError.add(s);
+                }
                 consumerError.forEach(c -> c.accept(s));
             });
         }
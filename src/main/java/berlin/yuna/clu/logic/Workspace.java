@@ -0,0 +1,336 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.exception.FileCopyException;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Hands out scratch directories for short-lived tasks and cleans them up <br>
+ * Prefers a RAM backed location ({@code /dev/shm}, {@code XDG_RUNTIME_DIR}) while its usage stays within the quota and the store has space,
+ * otherwise falls back to {@link SystemUtil#TMP_DIR}. Released directories are emptied asynchronously and recycled from a pool.
+ * Every workspace owns its own root directories which are created on first use.
+ * <br>
+ * example: <br>
+ * <pre>{@code
+ * try (Workspace.Scratch scratch = SystemUtil.workspace().acquire()) {
+ *     new Terminal().dir(scratch.path()).execute("tar -xzf archive.tar.gz");
+ * }
+ * }</pre>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class Workspace implements AutoCloseable {
+
+    private static final long USAGE_TTL_MS = 1000;
+    private static final ExecutorService CLEANER = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "clu-workspace-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path memoryLocation;
+    private final Path diskLocation;
+    private final AtomicReference<Path> memoryRoot = new AtomicReference<>();
+    private final AtomicReference<Path> diskRoot = new AtomicReference<>();
+    private final AtomicLong quotaBytes = new AtomicLong(256L * 1024 * 1024);
+    private final AtomicInteger poolSize = new AtomicInteger(8);
+    private final Deque<Path> memoryPool = new ConcurrentLinkedDeque<>();
+    private final Deque<Path> diskPool = new ConcurrentLinkedDeque<>();
+    private final Set<Scratch> active = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sequence = new AtomicInteger(0);
+    private final AtomicLong created = new AtomicLong(0);
+    private final AtomicLong reused = new AtomicLong(0);
+    private final AtomicLong fallbacks = new AtomicLong(0);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicLong usedBytes = new AtomicLong(0);
+    private final AtomicLong usageMeasuredMs = new AtomicLong(0);
+    private volatile Future<?> lastCleanup;
+
+    /**
+     * Scratch directory of a task - {@link Scratch#close()} returns it to the workspace
+     */
+    public class Scratch implements AutoCloseable {
+        private final Path path;
+        private final boolean memory;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        Scratch(final Path path, final boolean memory) {
+            this.path = path;
+            this.memory = memory;
+        }
+
+        public Path path() {
+            return path;
+        }
+
+        /**
+         * @return true if the directory is RAM backed
+         */
+        public boolean memory() {
+            return memory;
+        }
+
+        /**
+         * Empties the directory asynchronously and returns it to the pool
+         */
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return path.toString();
+        }
+    }
+
+    /**
+     * Workspace below {@code clu-<pid>-<random>} of the first usable RAM backed location and of {@link SystemUtil#TMP_DIR}
+     */
+    public Workspace() {
+        this(memoryLocation(), Path.of(SystemUtil.TMP_DIR));
+    }
+
+    /**
+     * @param memoryLocation preferred location - null to use only the disk location
+     * @param diskLocation   fallback location
+     */
+    public Workspace(final Path memoryLocation, final Path diskLocation) {
+        this.memoryLocation = memoryLocation;
+        this.diskLocation = diskLocation;
+    }
+
+    /**
+     * @param quotaBytes max bytes in the RAM backed location before new scratch directories go to disk (default 256MB)
+     * @return Workspace
+     */
+    public Workspace quotaBytes(final long quotaBytes) {
+        this.quotaBytes.set(quotaBytes);
+        return this;
+    }
+
+    /**
+     * @param poolSize max number of empty directories kept per location for reuse (default 8)
+     * @return Workspace
+     */
+    public Workspace poolSize(final int poolSize) {
+        this.poolSize.set(poolSize);
+        return this;
+    }
+
+    /**
+     * @return new or recycled empty scratch directory
+     * @throws FileCopyException if no directory can be created
+     */
+    public Scratch acquire() {
+        if (closed.get()) {
+            throw new IllegalStateException("Workspace is closed");
+        }
+        final boolean memory = memoryLocation != null && memoryAvailable();
+        final var pool = memory ? memoryPool : diskPool;
+        var path = pool.pollFirst();
+        if (path != null && Files.isDirectory(path)) {
+            reused.incrementAndGet();
+        } else {
+            path = create(memory ? memoryLocation : diskLocation, memory ? memoryRoot : diskRoot);
+        }
+        final var scratch = new Scratch(path, memory);
+        active.add(scratch);
+        return scratch;
+    }
+
+    /**
+     * @return bytes used by the active and not yet cleaned directories of the RAM backed location
+     */
+    public long memoryUsedBytes() {
+        final var root = memoryRoot.get();
+        return root == null || !Files.isDirectory(root) ? 0 : SystemUtil.treeSize(root).getBytes();
+    }
+
+    /**
+     * @return RAM backed root of this workspace - null if not available or not used yet
+     */
+    public Path memoryRoot() {
+        return memoryRoot.get();
+    }
+
+    /**
+     * @return disk root of this workspace - null if not used yet
+     */
+    public Path diskRoot() {
+        return diskRoot.get();
+    }
+
+    public long quotaBytes() {
+        return quotaBytes.get();
+    }
+
+    public int poolSize() {
+        return poolSize.get();
+    }
+
+    /**
+     * @return number of scratch directories in use
+     */
+    public int active() {
+        return active.size();
+    }
+
+    /**
+     * @return number of created directories
+     */
+    public long created() {
+        return created.get();
+    }
+
+    /**
+     * @return number of recycled directories
+     */
+    public long reused() {
+        return reused.get();
+    }
+
+    /**
+     * @return number of scratch directories which went to disk as the RAM backed location was full
+     */
+    public long fallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * Waits until all released directories are cleaned
+     */
+    public void awaitCleanup() {
+        final var current = lastCleanup;
+        if (current != null) {
+            try {
+                current.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ignored) {
+                // cleanup failures are visible in the remaining files
+            }
+        }
+    }
+
+    /**
+     * Deletes the roots of this workspace with all scratch directories (including the active ones) - other workspaces are not touched
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            awaitCleanup();
+            active.clear();
+            memoryPool.clear();
+            diskPool.clear();
+            Stream.of(memoryRoot.get(), diskRoot.get()).filter(root -> root != null && Files.exists(root)).forEach(SystemUtil::deleteTree);
+        }
+    }
+
+    private void release(final Scratch scratch) {
+        lastCleanup = CLEANER.submit(() -> {
+            final var pool = scratch.memory ? memoryPool : diskPool;
+            if (!closed.get() && pool.size() < poolSize.get() && clean(scratch.path)) {
+                pool.offerLast(scratch.path);
+            } else {
+                SystemUtil.deleteTree(scratch.path);
+            }
+            active.remove(scratch);
+        });
+    }
+
+    private boolean memoryAvailable() {
+        try {
+            final long free = Files.getFileStore(root(memoryLocation, memoryRoot)).getUsableSpace();
+            if (free > quotaBytes.get() && usedBytes() < quotaBytes.get()) {
+                return true;
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // not usable - disk fallback
+        }
+        fallbacks.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return measured memory usage - refreshed at most once per second to keep acquire cheap
+     */
+    private long usedBytes() {
+        final long now = System.currentTimeMillis();
+        final long measured = usageMeasuredMs.get();
+        if (now - measured > USAGE_TTL_MS && usageMeasuredMs.compareAndSet(measured, now)) {
+            usedBytes.set(memoryUsedBytes());
+        }
+        return usedBytes.get();
+    }
+
+    private Path create(final Path location, final AtomicReference<Path> root) {
+        try {
+            final var directory = Files.createDirectory(root(location, root).resolve("scratch-" + sequence.incrementAndGet()));
+            created.incrementAndGet();
+            return directory;
+        } catch (IOException e) {
+            throw new FileCopyException("Could not create scratch directory in [" + location + "]", e);
+        }
+    }
+
+    /**
+     * @return own root of this workspace in the location - created on first use
+     */
+    private synchronized Path root(final Path location, final AtomicReference<Path> root) throws IOException {
+        if (root.get() == null || !Files.isDirectory(root.get())) {
+            Files.createDirectories(location);
+            root.set(Files.createTempDirectory(location, "clu-" + ProcessHandle.current().pid() + "-"));
+        }
+        return root.get();
+    }
+
+    private static boolean clean(final Path directory) {
+        boolean success = true;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                success &= SystemUtil.deleteTree(entry).isSuccess();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return success;
+    }
+
+    private static Path memoryLocation() {
+        return Stream.of("/dev/shm", System.getenv("XDG_RUNTIME_DIR"))
+                .filter(Objects::nonNull)
+                .map(Path::of)
+                .filter(path -> Files.isDirectory(path) && Files.isWritable(path))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public String toString() {
+        return "Workspace{" +
+                "memoryRoot=" + memoryRoot +
+                ", diskRoot=" + diskRoot +
+                ", active=" + active.size() +
+                ", created=" + created +
+                ", reused=" + reused +
+                '}';
+    }
+}
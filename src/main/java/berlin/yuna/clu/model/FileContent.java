@@ -0,0 +1,57 @@
+package berlin.yuna.clu.model;
+
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+/**
+ * Text content of a file together with the detected charset
+ */
+@SuppressWarnings("unused")
+public class FileContent {
+
+    private final Path path;
+    private final Charset charset;
+    private final String content;
+    private final long size;
+
+    public FileContent(final Path path, final Charset charset, final String content, final long size) {
+        this.path = path;
+        this.charset = charset;
+        this.content = content;
+        this.size = size;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return detected charset
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return decoded text (without byte order mark)
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return file size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "FileContent{" +
+                "path=" + path +
+                ", charset=" + charset +
+                ", size=" + size +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+package berlin.yuna.clu.model;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Result of a bulk read with the contents, per file errors and throughput
+ */
+@SuppressWarnings("unused")
+public class FileReadResult {
+
+    private final Map<Path, FileContent> contents;
+    private final Map<Path, RuntimeException> errors;
+    private final long bytes;
+    private final long durationMs;
+    private final int concurrency;
+
+    public FileReadResult(final Map<Path, FileContent> contents, final Map<Path, RuntimeException> errors, final long bytes, final long durationMs, final int concurrency) {
+        this.contents = Collections.unmodifiableMap(contents);
+        this.errors = Collections.unmodifiableMap(errors);
+        this.bytes = bytes;
+        this.durationMs = durationMs;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return successfully read files in request order
+     */
+    public Map<Path, FileContent> getContents() {
+        return contents;
+    }
+
+    /**
+     * @return files which could not be read in request order
+     */
+    public Map<Path, RuntimeException> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return true if all files were read
+     */
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * @return total bytes read
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    /**
+     * @return number of parallel reads used
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public double getFilesPerSecond() {
+        return perSecond(contents.size() + errors.size());
+    }
+
+    public double getBytesPerSecond() {
+        return perSecond(bytes);
+    }
+
+    private double perSecond(final long value) {
+        return value * 1000d / Math.max(1, durationMs);
+    }
+
+    @Override
+    public String toString() {
+        return "FileReadResult{" +
+                "files=" + contents.size() +
+                ", errors=" + errors.size() +
+                ", bytes=" + bytes +
+                ", durationMs=" + durationMs +
+                ", concurrency=" + concurrency +
+                '}';
+    }
+}
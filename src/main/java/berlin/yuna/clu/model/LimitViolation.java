@@ -0,0 +1,10 @@
+package berlin.yuna.clu.model;
+
+/**
+ * Resource limit which most likely terminated the last command
+ */
+public enum LimitViolation {
+    NONE,
+    CPU_TIME,
+    MEMORY
+}
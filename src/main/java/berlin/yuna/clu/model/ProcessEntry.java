@@ -0,0 +1,85 @@
+package berlin.yuna.clu.model;
+
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Live process started through a {@link berlin.yuna.clu.logic.Terminal}
+ */
+@SuppressWarnings("unused")
+public class ProcessEntry {
+
+    private final Process process;
+    private final String command;
+    private final String owner;
+    private final Instant startTime;
+    private final WeakReference<Object> ownerRef;
+    private final AtomicBoolean replaced = new AtomicBoolean(false);
+
+    public ProcessEntry(final Process process, final String command, final String owner, final Object ownerRef) {
+        this.process = process;
+        this.command = command;
+        this.owner = owner;
+        this.startTime = Instant.now();
+        this.ownerRef = new WeakReference<>(ownerRef);
+    }
+
+    public Process getProcess() {
+        return process;
+    }
+
+    public long getPid() {
+        return process.pid();
+    }
+
+    /**
+     * @return command label
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return owner label (default: name of the starting thread)
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * @return true if the owner started another command while this one was still running or the owner was garbage collected
+     */
+    public boolean isOrphaned() {
+        return replaced.get() || ownerRef.get() == null;
+    }
+
+    /**
+     * Marks the entry as replaced by a newer command of the same owner
+     *
+     * @return true if the entry was not marked before
+     */
+    public boolean replaced() {
+        return !replaced.getAndSet(true);
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessEntry{" +
+                "pid=" + process.pid() +
+                ", command='" + command + '\'' +
+                ", owner='" + owner + '\'' +
+                ", startTime=" + startTime +
+                ", alive=" + process.isAlive() +
+                ", orphaned=" + isOrphaned() +
+                '}';
+    }
+}
@@ -0,0 +1,175 @@
+package berlin.yuna.clu.model;
+
+/**
+ * Resource usage of an executed command and its process tree (sampled from /proc on linux)
+ */
+@SuppressWarnings("unused")
+public class ProcessMetrics {
+
+    private final long pid;
+    private final String command;
+    private final long durationMs;
+    private final long peakRssBytes;
+    private final long userCpuMs;
+    private final long systemCpuMs;
+    private final long voluntaryContextSwitches;
+    private final long involuntaryContextSwitches;
+    private final long readBytes;
+    private final long writeBytes;
+    private final long diskReadBytes;
+    private final long diskWriteBytes;
+    private final int processCount;
+    private final int samples;
+
+    @SuppressWarnings("java:S107")
+    public ProcessMetrics(
+            final long pid,
+            final String command,
+            final long durationMs,
+            final long peakRssBytes,
+            final long userCpuMs,
+            final long systemCpuMs,
+            final long voluntaryContextSwitches,
+            final long involuntaryContextSwitches,
+            final long readBytes,
+            final long writeBytes,
+            final long diskReadBytes,
+            final long diskWriteBytes,
+            final int processCount,
+            final int samples
+    ) {
+        this.pid = pid;
+        this.command = command;
+        this.durationMs = durationMs;
+        this.peakRssBytes = peakRssBytes;
+        this.userCpuMs = userCpuMs;
+        this.systemCpuMs = systemCpuMs;
+        this.voluntaryContextSwitches = voluntaryContextSwitches;
+        this.involuntaryContextSwitches = involuntaryContextSwitches;
+        this.readBytes = readBytes;
+        this.writeBytes = writeBytes;
+        this.diskReadBytes = diskReadBytes;
+        this.diskWriteBytes = diskWriteBytes;
+        this.processCount = processCount;
+        this.samples = samples;
+    }
+
+    /**
+     * @return pid of the root process
+     */
+    public long getPid() {
+        return pid;
+    }
+
+    /**
+     * @return executed command
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return wall clock time from start until exit
+     */
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    /**
+     * @return highest resident set size observed over the whole process tree
+     */
+    public long getPeakRssBytes() {
+        return peakRssBytes;
+    }
+
+    /**
+     * @return user cpu time including reaped children - -1 if the command exited before a sample saw it
+     */
+    public long getUserCpuMs() {
+        return userCpuMs;
+    }
+
+    /**
+     * @return system cpu time including reaped children - -1 if the command exited before a sample saw it
+     */
+    public long getSystemCpuMs() {
+        return systemCpuMs;
+    }
+
+    /**
+     * @return user + system cpu time - -1 if unknown
+     */
+    public long getCpuMs() {
+        return userCpuMs < 0 || systemCpuMs < 0 ? -1 : userCpuMs + systemCpuMs;
+    }
+
+    public long getVoluntaryContextSwitches() {
+        return voluntaryContextSwitches;
+    }
+
+    public long getInvoluntaryContextSwitches() {
+        return involuntaryContextSwitches;
+    }
+
+    /**
+     * @return bytes read by syscalls (files, pipes, sockets)
+     */
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * @return bytes written by syscalls (files, pipes, sockets)
+     */
+    public long getWriteBytes() {
+        return writeBytes;
+    }
+
+    /**
+     * @return bytes fetched from the storage layer
+     */
+    public long getDiskReadBytes() {
+        return diskReadBytes;
+    }
+
+    /**
+     * @return bytes sent to the storage layer
+     */
+    public long getDiskWriteBytes() {
+        return diskWriteBytes;
+    }
+
+    /**
+     * @return number of distinct processes seen in the process tree
+     */
+    public int getProcessCount() {
+        return processCount;
+    }
+
+    /**
+     * @return number of samples taken - 0 if /proc is not available
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessMetrics{" +
+                "pid=" + pid +
+                ", command='" + command + '\'' +
+                ", durationMs=" + durationMs +
+                ", peakRssBytes=" + peakRssBytes +
+                ", userCpuMs=" + userCpuMs +
+                ", systemCpuMs=" + systemCpuMs +
+                ", voluntaryContextSwitches=" + voluntaryContextSwitches +
+                ", involuntaryContextSwitches=" + involuntaryContextSwitches +
+                ", readBytes=" + readBytes +
+                ", writeBytes=" + writeBytes +
+                ", diskReadBytes=" + diskReadBytes +
+                ", diskWriteBytes=" + diskWriteBytes +
+                ", processCount=" + processCount +
+                ", samples=" + samples +
+                '}';
+    }
+}
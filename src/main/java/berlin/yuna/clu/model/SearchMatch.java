@@ -0,0 +1,61 @@
+package berlin.yuna.clu.model;
+
+import java.nio.file.Path;
+
+/**
+ * Line of a file which matches a search
+ */
+@SuppressWarnings("unused")
+public class SearchMatch {
+
+    private final Path path;
+    private final long lineNumber;
+    private final long offset;
+    private final int column;
+    private final String line;
+
+    public SearchMatch(final Path path, final long lineNumber, final long offset, final int column, final String line) {
+        this.path = path;
+        this.lineNumber = lineNumber;
+        this.offset = offset;
+        this.column = column;
+        this.line = line;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return line number starting at 1
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return byte offset of the match in the file
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return byte offset of the match in the line
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return matching line without line terminator
+     */
+    public String getLine() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return path + ":" + lineNumber + ":" + line;
+    }
+}
@@ -0,0 +1,12 @@
+package berlin.yuna.clu.model;
+
+/**
+ * Lifecycle state of a {@link berlin.yuna.clu.logic.Supervisor}
+ */
+public enum SupervisorState {
+    STOPPED,
+    STARTING,
+    READY,
+    BACKOFF,
+    CRASH_LOOP
+}
@@ -0,0 +1,97 @@
+package berlin.yuna.clu.model;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Counts, failures and throughput of a file tree operation (delete, copy, permissions, size)
+ */
+@SuppressWarnings("unused")
+public class TreeResult {
+
+    private final Path root;
+    private final long files;
+    private final long directories;
+    private final long bytes;
+    private final long skipped;
+    private final Map<Path, Exception> failures;
+    private final long durationMs;
+
+    public TreeResult(final Path root, final long files, final long directories, final long bytes, final long skipped, final Map<Path, Exception> failures, final long durationMs) {
+        this.root = root;
+        this.files = files;
+        this.directories = directories;
+        this.bytes = bytes;
+        this.skipped = skipped;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.durationMs = durationMs;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return processed files (including symbolic links)
+     */
+    public long getFiles() {
+        return files;
+    }
+
+    /**
+     * @return processed directories
+     */
+    public long getDirectories() {
+        return directories;
+    }
+
+    /**
+     * @return bytes of the processed files
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return entries which didn't need processing (e.g. unchanged files)
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return failed paths with their cause
+     */
+    public Map<Path, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return true if no path failed
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public double getBytesPerSecond() {
+        return bytes * 1000d / Math.max(1, durationMs);
+    }
+
+    @Override
+    public String toString() {
+        return "TreeResult{" +
+                "root=" + root +
+                ", files=" + files +
+                ", directories=" + directories +
+                ", bytes=" + bytes +
+                ", skipped=" + skipped +
+                ", failures=" + failures.size() +
+                ", durationMs=" + durationMs +
+                '}';
+    }
+}
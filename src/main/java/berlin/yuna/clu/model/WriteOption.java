@@ -0,0 +1,19 @@
+package berlin.yuna.clu.model;
+
+/**
+ * Durability of {@link berlin.yuna.clu.logic.SystemUtil#writeFile(java.nio.file.Path, CharSequence, WriteOption...)} - the rename is always atomic
+ */
+public enum WriteOption {
+    /**
+     * fsync of the file content before the rename
+     */
+    SYNC,
+    /**
+     * fsync of the file content and of the directory after the rename (survives a power loss)
+     */
+    SYNC_DIRECTORY,
+    /**
+     * like {@link WriteOption#SYNC_DIRECTORY} but concurrent writers share one directory fsync per batch
+     */
+    GROUP_COMMIT
+}
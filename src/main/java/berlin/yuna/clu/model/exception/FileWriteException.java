@@ -0,0 +1,8 @@
+package berlin.yuna.clu.model.exception;
+
+public class FileWriteException extends RuntimeException {
+
+    public FileWriteException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,562 @@
+package berlin.yuna.clu.util;
+
+import berlin.yuna.clu.model.TreeResult;
+import berlin.yuna.clu.model.exception.FileCopyException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.jar.JarFile;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static java.nio.file.attribute.PosixFilePermission.GROUP_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_READ;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_READ;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
+
+/**
+ * Extracts class path directories and zip, tar or tar.gz archives into a directory <br>
+ * Entries are read in a single streaming pass. Small files are buffered and written in parallel on {@link ParallelTree#POOL}
+ * (at most 64 MB at once), larger files are streamed by the reader into their temp file, so memory stays flat for big binaries.
+ * Files with the same size and last modified time as the entry are skipped, every file is written to a temp name and renamed.
+ * Tar archives keep their modes. Zip and jar entries carry no modes, so scripts ({@code #!}) and native binaries (ELF, Mach-O) are made executable.
+ * Entries and symbolic link targets outside the target directory are rejected (link targets resolved like the file system, following
+ * the links extracted before), symbolic links are created after all files
+ * and nothing is written through a symbolic link within the target.
+ */
+public class ArchiveExtractor {
+
+    private static final int MAX_IN_MEMORY = 1024 * 1024;
+    private static final int MAX_PENDING_BYTES = 64 * 1024 * 1024;
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    /**
+     * Extracts a class path directory (from a directory or a jar)
+     *
+     * @param classLoader  class loader of the resources
+     * @param resourcePath relative path of the resource directory
+     * @param target       destination directory
+     * @return written files and bytes, unchanged files as skipped and failures
+     * @throws FileCopyException if the resource directory doesn't exist
+     */
+    public static TreeResult extractDirectory(final ClassLoader classLoader, final String resourcePath, final Path target) {
+        final var directory = trimSlashes(resourcePath);
+        final var url = classLoader.getResource(directory);
+        if (url == null) {
+            throw new FileCopyException("Could not copy directory", new IOException("Resource not found [" + resourcePath + "]"));
+        }
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return ParallelTree.copy(Path.of(url.toURI()), target, true);
+            }
+            final var connection = (JarURLConnection) url.openConnection();
+            connection.setUseCaches(false);
+            try (JarFile jar = connection.getJarFile()) {
+                final var prefix = directory.isEmpty() ? "" : directory + "/";
+                final var counter = new ParallelTree.Counter(target);
+                final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                jar.stream().filter(entry -> entry.getName().startsWith(prefix) && entry.getName().length() > prefix.length()).forEach(entry -> {
+                    final var destination = resolve(target, entry.getName().substring(prefix.length()), counter);
+                    if (destination != null) {
+                        tasks.add(ParallelTree.POOL.submit(() -> writeEntry(entry, destination, counter, () -> jar.getInputStream(entry))));
+                    }
+                });
+                tasks.forEach(ForkJoinTask::join);
+                return counter.result();
+            }
+        } catch (IOException | URISyntaxException | ClassCastException e) {
+            throw new FileCopyException("Could not copy directory [" + resourcePath + "]", e);
+        }
+    }
+
+    /**
+     * Extracts a zip (jar), tar or tar.gz archive - the format is detected from its magic bytes
+     *
+     * @param archive archive stream (closed afterwards)
+     * @param target  destination directory
+     * @return written files and bytes, unchanged files as skipped and failures
+     * @throws FileCopyException if the archive can't be read
+     */
+    public static TreeResult extract(final InputStream archive, final Path target) {
+        final var counter = new ParallelTree.Counter(target);
+        final var pending = new Semaphore(MAX_PENDING_BYTES);
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        final List<Entry> links = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(archive)) {
+            in.mark(2);
+            final int first = in.read();
+            final int second = in.read();
+            in.reset();
+            if (first == 'P' && second == 'K') {
+                readZip(in, target, counter, pending, tasks);
+            } else if (first == 0x1F && second == 0x8B) {
+                readTar(new BufferedInputStream(new GZIPInputStream(in)), target, counter, pending, tasks, links);
+            } else {
+                readTar(in, target, counter, pending, tasks, links);
+            }
+        } catch (IOException e) {
+            throw new FileCopyException("Could not extract archive", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileCopyException("Interrupted while extracting archive", e);
+        } finally {
+            tasks.forEach(ForkJoinTask::join);
+        }
+        // after the files, so no file of the archive is written through one of its links
+        links.forEach(link -> write(link, null, counter));
+        return counter.result();
+    }
+
+    private static void readZip(final InputStream in, final Path target, final ParallelTree.Counter counter, final Semaphore pending, final List<ForkJoinTask<?>> tasks) throws IOException, InterruptedException {
+        final var zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            final var destination = resolve(target, entry.getName(), counter);
+            if (destination != null) {
+                final var type = entry.isDirectory() ? Type.DIRECTORY : Type.FILE;
+                submit(new Entry(destination, type, entry.isDirectory() ? 0 : entry.getSize(), null, entry.getTime(), null), zip, counter, pending, tasks);
+            }
+        }
+    }
+
+    private static void readTar(final InputStream in, final Path target, final ParallelTree.Counter counter, final Semaphore pending, final List<ForkJoinTask<?>> tasks, final List<Entry> links) throws IOException, InterruptedException {
+        final var header = new byte[512];
+        String longName = null;
+        String longLink = null;
+        while (in.readNBytes(header, 0, 512) == 512 && header[0] != 0) {
+            final long size = octal(header, 124, 12);
+            final byte type = header[156];
+            final long padding = (512 - size % 512) % 512;
+            if (type == 'L' || type == 'K' || type == 'x' || type == 'g') {
+                if (size > MAX_IN_MEMORY) {
+                    throw new IOException("Tar header entry too large [" + size + "] bytes");
+                }
+                final var data = in.readNBytes((int) size);
+                in.skipNBytes(padding);
+                final var value = type == 'x' ? pax(data) : new String(data, StandardCharsets.UTF_8).replace("\0", "");
+                if (type == 'K') {
+                    longLink = value;
+                } else if (type != 'g') {
+                    longName = value;
+                }
+                continue;
+            }
+            final var prefix = string(header, 345, 155);
+            final var name = longName != null ? longName : (prefix.isEmpty() ? "" : prefix + "/") + string(header, 0, 100);
+            final var link = longLink != null ? longLink : string(header, 157, 100);
+            longName = null;
+            longLink = null;
+            final var destination = resolve(target, name, counter);
+            final var content = new EntryInputStream(in, size);
+            final var entryType = type == '5' ? Type.DIRECTORY : (type == '2' ? Type.SYMLINK : Type.FILE);
+            final var entry = new Entry(destination, entryType, entryType == Type.FILE ? size : 0, link, octal(header, 136, 12) * 1000, permissions((int) octal(header, 100, 8)));
+            if (destination != null && type == '2') {
+                if (linkInside(target, destination, link)) {
+                    links.add(entry);
+                } else {
+                    counter.fail(destination, new IOException("Link target is outside of the target directory [" + name + " -> " + link + "]"));
+                }
+            } else if (destination != null && (type == '0' || type == 0 || type == '5' || type == '7')) {
+                submit(entry, content, counter, pending, tasks);
+            }
+            content.skipRemaining();
+            in.skipNBytes(padding);
+        }
+    }
+
+    private enum Type {FILE, DIRECTORY, SYMLINK}
+
+    private static class Entry {
+        private final Path path;
+        private final Type type;
+        private final long size;
+        private final String link;
+        private final long lastModified;
+        private final Set<PosixFilePermission> permissions;
+
+        /**
+         * @param size content size - -1 if unknown
+         */
+        Entry(final Path path, final Type type, final long size, final String link, final long lastModified, final Set<PosixFilePermission> permissions) {
+            this.path = path;
+            this.type = type;
+            this.size = size;
+            this.link = link;
+            this.lastModified = lastModified;
+            this.permissions = permissions;
+        }
+
+        Entry withSize(final long size) {
+            return new Entry(path, type, size, link, lastModified, permissions);
+        }
+    }
+
+    /**
+     * Content of a single tar entry - ends at the entry size and leaves the archive stream open on close
+     */
+    private static class EntryInputStream extends FilterInputStream {
+        private long remaining;
+
+        EntryInputStream(final InputStream in, final long size) {
+            super(in);
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int result = in.read();
+            if (result < 0) {
+                throw new EOFException("Truncated tar entry");
+            }
+            remaining--;
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int result = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (result < 0) {
+                throw new EOFException("Truncated tar entry");
+            }
+            remaining -= result;
+            return result;
+        }
+
+        void skipRemaining() throws IOException {
+            in.skipNBytes(remaining);
+            remaining = 0;
+        }
+
+        @Override
+        public void close() {
+            // the archive stream stays open for the next entry
+        }
+    }
+
+    private interface ContentSupplier {
+        InputStream get() throws IOException;
+    }
+
+    private static void submit(final Entry entry, final InputStream content, final ParallelTree.Counter counter, final Semaphore pending, final List<ForkJoinTask<?>> tasks) throws IOException, InterruptedException {
+        if (entry.type == Type.DIRECTORY || entry.size > MAX_IN_MEMORY) {
+            // large files are streamed by the reader, so only small entries are held in memory
+            write(entry, content, counter);
+            return;
+        }
+        // bounds the bytes held in memory while the writers are behind the reader
+        final int permits = entry.size < 0 ? MAX_IN_MEMORY + 1 : (int) Math.max(1, entry.size);
+        pending.acquire(permits);
+        boolean submitted = false;
+        try {
+            final var data = content.readNBytes(entry.size < 0 ? MAX_IN_MEMORY + 1 : (int) entry.size);
+            if (data.length > MAX_IN_MEMORY) {
+                // unknown size which turned out to be large
+                write(entry, new SequenceInputStream(new ByteArrayInputStream(data), keepOpen(content)), counter);
+                return;
+            }
+            final var sized = entry.withSize(data.length);
+            tasks.add(ParallelTree.POOL.submit(() -> {
+                try {
+                    write(sized, new ByteArrayInputStream(data), counter);
+                } finally {
+                    pending.release(permits);
+                }
+            }));
+            submitted = true;
+        } finally {
+            if (!submitted) {
+                pending.release(permits);
+            }
+        }
+    }
+
+    /**
+     * @return stream which ignores close - {@link SequenceInputStream} closes its streams at their end
+     */
+    private static InputStream keepOpen(final InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+                // the archive stream stays open for the next entry
+            }
+        };
+    }
+
+    private static void writeEntry(final ZipEntry zipEntry, final Path destination, final ParallelTree.Counter counter, final ContentSupplier content) {
+        if (zipEntry.isDirectory()) {
+            write(new Entry(destination, Type.DIRECTORY, 0, null, zipEntry.getTime(), null), null, counter);
+            return;
+        }
+        try (InputStream in = content.get()) {
+            write(new Entry(destination, Type.FILE, zipEntry.getSize(), null, zipEntry.getTime(), null), in, counter);
+        } catch (IOException e) {
+            counter.fail(destination, e);
+        }
+    }
+
+    /**
+     * @param content content of a file entry (not closed) - ignored for directories and links
+     */
+    private static void write(final Entry entry, final InputStream content, final ParallelTree.Counter counter) {
+        try {
+            checkParents(counter.root, entry.path);
+            switch (entry.type) {
+                case DIRECTORY -> {
+                    Files.createDirectories(entry.path);
+                    counter.directories.increment();
+                }
+                case SYMLINK -> {
+                    Files.createDirectories(entry.path.getParent());
+                    if (!linkInsideOnDisk(counter.root, entry.path, entry.link)) {
+                        throw new IOException("Link target is outside of the target directory [" + entry.path + " -> " + entry.link + "]");
+                    }
+                    Files.deleteIfExists(entry.path);
+                    Files.createSymbolicLink(entry.path, Path.of(entry.link));
+                    counter.files.increment();
+                }
+                default -> writeFile(entry, content, counter);
+            }
+        } catch (IOException e) {
+            counter.fail(entry.path, e);
+        }
+    }
+
+    private static void writeFile(final Entry entry, final InputStream content, final ParallelTree.Counter counter) throws IOException {
+        if (unchanged(entry.path, entry.size, entry.lastModified)) {
+            counter.skipped.increment();
+            return;
+        }
+        Files.createDirectories(entry.path.getParent());
+        final var tmp = entry.path.resolveSibling("." + entry.path.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            final long size;
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                size = content.transferTo(out);
+            }
+            if (entry.size < 0 && unchanged(entry.path, size, entry.lastModified)) {
+                counter.skipped.increment();
+                return;
+            }
+            if (POSIX) {
+                Files.setPosixFilePermissions(tmp, entry.permissions != null ? entry.permissions : executable(tmp));
+            }
+            if (entry.lastModified > 0) {
+                Files.setLastModifiedTime(tmp, FileTime.fromMillis(entry.lastModified));
+            }
+            Files.move(tmp, entry.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            counter.files.increment();
+            counter.bytes.add(size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static boolean unchanged(final Path path, final long size, final long lastModified) {
+        try {
+            final var attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return attributes.isRegularFile() && attributes.size() == size && lastModified > 0 && attributes.lastModifiedTime().toMillis() == lastModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Set<PosixFilePermission> executable(final Path path) throws IOException {
+        final var permissions = EnumSet.copyOf(Files.getPosixFilePermissions(path));
+        final byte[] head;
+        try (InputStream in = Files.newInputStream(path)) {
+            head = in.readNBytes(4);
+        }
+        if (isExecutable(head)) {
+            permissions.add(OWNER_EXECUTE);
+            if (permissions.contains(GROUP_READ)) {
+                permissions.add(GROUP_EXECUTE);
+            }
+            if (permissions.contains(OTHERS_READ)) {
+                permissions.add(OTHERS_EXECUTE);
+            }
+        }
+        return permissions;
+    }
+
+    private static boolean isExecutable(final byte[] content) {
+        if (content.length < 4) {
+            return content.length >= 2 && content[0] == '#' && content[1] == '!';
+        }
+        final int magic = ((content[0] & 0xFF) << 24) | ((content[1] & 0xFF) << 16) | ((content[2] & 0xFF) << 8) | (content[3] & 0xFF);
+        return (content[0] == '#' && content[1] == '!')
+                || magic == 0x7F454C46
+                || magic == 0xFEEDFACE || magic == 0xFEEDFACF || magic == 0xCEFAEDFE || magic == 0xCFFAEDFE;
+    }
+
+    private static Set<PosixFilePermission> permissions(final int mode) {
+        final var result = EnumSet.noneOf(PosixFilePermission.class);
+        final var values = PosixFilePermission.values();
+        for (int i = 0; i < values.length; i++) {
+            if ((mode & (1 << (values.length - 1 - i))) != 0) {
+                result.add(values[i]);
+            }
+        }
+        // the owner needs to be able to replace the file on the next extraction
+        result.add(OWNER_READ);
+        return result;
+    }
+
+    private static Path resolve(final Path target, final String name, final ParallelTree.Counter counter) {
+        final var relative = trimSlashes(name);
+        if (relative.isEmpty()) {
+            return null;
+        }
+        final var root = target.toAbsolutePath().normalize();
+        final var destination = root.resolve(relative).normalize();
+        if (!destination.startsWith(root)) {
+            counter.fail(destination, new IOException("Entry is outside of the target directory [" + name + "]"));
+            return null;
+        }
+        return destination;
+    }
+
+    private static boolean linkInside(final Path target, final Path destination, final String link) {
+        try {
+            final var linkPath = Path.of(link);
+            return !link.isEmpty() && !linkPath.isAbsolute() && !link.startsWith("/") && !link.startsWith("\\")
+                    && destination.getParent().resolve(linkPath).normalize().startsWith(target.toAbsolutePath().normalize());
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Resolves the link target like the file system would, following the links which are already extracted <br>
+     * Missing components followed by ".." are rejected, as a later link could redirect them.
+     */
+    private static boolean linkInsideOnDisk(final Path target, final Path destination, final String link) throws IOException {
+        final var root = target.toRealPath();
+        final var resolved = resolveOnDisk(destination.getParent().toRealPath(), Path.of(link), 0);
+        return resolved != null && resolved.startsWith(root);
+    }
+
+    /**
+     * @return resolved path - null if it can't be resolved safely
+     */
+    private static Path resolveOnDisk(final Path start, final Path link, final int depth) throws IOException {
+        if (link.isAbsolute() || depth > 40) {
+            return null;
+        }
+        var current = start;
+        boolean missing = false;
+        for (Path part : link) {
+            final var name = part.toString();
+            if (name.equals("..")) {
+                if (missing || current.getParent() == null) {
+                    return null;
+                }
+                current = current.getParent();
+            } else if (!name.isEmpty() && !name.equals(".")) {
+                final var next = current.resolve(name);
+                if (Files.isSymbolicLink(next)) {
+                    current = resolveOnDisk(current, Files.readSymbolicLink(next), depth + 1);
+                    if (current == null) {
+                        return null;
+                    }
+                } else {
+                    missing = missing || !Files.exists(next);
+                    current = next;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @throws IOException if a parent directory below the target is a symbolic link (of the archive or created before)
+     */
+    private static void checkParents(final Path target, final Path path) throws IOException {
+        final var root = target.toAbsolutePath().normalize();
+        var current = root;
+        for (Path part : root.relativize(path.getParent())) {
+            if (!part.toString().isEmpty()) {
+                current = current.resolve(part);
+                if (Files.isSymbolicLink(current)) {
+                    throw new IOException("Parent directory is a symbolic link [" + current + "]");
+                }
+            }
+        }
+    }
+
+    private static String pax(final byte[] data) {
+        for (String record : new String(data, StandardCharsets.UTF_8).split("\n")) {
+            final int index = record.indexOf(" path=");
+            if (index > 0) {
+                return record.substring(index + 6);
+            }
+        }
+        return null;
+    }
+
+    private static long octal(final byte[] header, final int offset, final int length) {
+        long result = 0;
+        for (int i = offset; i < offset + length && header[i] != 0; i++) {
+            if (header[i] >= '0' && header[i] <= '7') {
+                result = (result << 3) + (header[i] - '0');
+            }
+        }
+        return result;
+    }
+
+    private static String string(final byte[] header, final int offset, final int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String trimSlashes(final String path) {
+        var result = Objects.requireNonNull(path).replace('\\', '/');
+        while (result.startsWith("/") || result.startsWith("./")) {
+            result = result.substring(result.startsWith("/") ? 1 : 2);
+        }
+        while (result.endsWith("/")) {
+            result = result.substring(0, result.length() - 1);
+        }
+        return result;
+    }
+
+    private ArchiveExtractor() {
+    }
+}
@@ -0,0 +1,229 @@
+package berlin.yuna.clu.util;
+
+import berlin.yuna.clu.model.WriteOption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static berlin.yuna.clu.model.WriteOption.GROUP_COMMIT;
+import static berlin.yuna.clu.model.WriteOption.SYNC;
+import static berlin.yuna.clu.model.WriteOption.SYNC_DIRECTORY;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Writes files atomically: the content goes to a temp file in the same directory which replaces the target with a rename <br>
+ * Readers see either the old or the new content, never a partial file. Existing POSIX permissions of the target are kept.
+ * {@link WriteOption#GROUP_COMMIT} hands the directory fsync to a committer thread which syncs every directory once per batch,
+ * so concurrent writers share the cost while each writer still waits for its own durability.
+ */
+public class AtomicFileWriter {
+
+    private static final int CHUNK = 64 * 1024;
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(CHUNK));
+    private static final LinkedBlockingQueue<Commit> COMMITS = new LinkedBlockingQueue<>();
+    private static final AtomicReference<Thread> COMMITTER = new AtomicReference<>();
+
+    private static class Commit {
+        private final Path directory;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Commit(final Path directory) {
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * Starts the committer thread if it isn't running (first use or died on an unexpected error)
+     */
+    private static void ensureCommitter() {
+        final var current = COMMITTER.get();
+        if (current == null || !current.isAlive()) {
+            final var committer = new Thread(AtomicFileWriter::commitLoop, "clu-group-commit");
+            committer.setDaemon(true);
+            if (COMMITTER.compareAndSet(current, committer)) {
+                committer.start();
+            }
+        }
+    }
+
+    /**
+     * @param target  file to replace
+     * @param content bytes from position to limit (the position is not modified)
+     * @param options durability options
+     * @return target
+     * @throws IOException on any write, sync or rename error
+     */
+    public static Path write(final Path target, final ByteBuffer content, final Set<WriteOption> options) throws IOException {
+        return write(target, options, channel -> {
+            final var buffer = content.duplicate();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        });
+    }
+
+    /**
+     * Encodes the text in chunks into a reused direct buffer (no intermediate String or byte array)
+     *
+     * @param target  file to replace
+     * @param content text to write
+     * @param charset charset to encode with
+     * @param options durability options
+     * @return target
+     * @throws IOException on any write, sync or rename error or if the text can't be encoded
+     */
+    public static Path write(final Path target, final CharSequence content, final Charset charset, final Set<WriteOption> options) throws IOException {
+        return write(target, options, channel -> {
+            final CharsetEncoder encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+            final var in = CharBuffer.wrap(content);
+            final var out = BUFFER.get();
+            boolean flushed = false;
+            while (!flushed) {
+                out.clear();
+                CoderResult result = encoder.encode(in, out, true);
+                if (result.isUnderflow()) {
+                    result = encoder.flush(out);
+                    flushed = result.isUnderflow();
+                }
+                if (result.isError()) {
+                    result.throwException();
+                }
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+        });
+    }
+
+    private interface ChannelWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    private static Path write(final Path target, final Set<WriteOption> options, final ChannelWriter writer) throws IOException {
+        final var file = target.toAbsolutePath();
+        final var directory = file.getParent();
+        final var tmp = directory.resolve("." + file.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        final boolean syncDirectory = options.contains(SYNC_DIRECTORY) || options.contains(GROUP_COMMIT);
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                writer.write(channel);
+                if (syncDirectory || options.contains(SYNC)) {
+                    channel.force(true);
+                }
+            }
+            if (POSIX && Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+                Files.setPosixFilePermissions(tmp, Files.getPosixFilePermissions(file));
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        if (options.contains(GROUP_COMMIT)) {
+            awaitCommit(directory);
+        } else if (syncDirectory) {
+            syncDirectory(directory);
+        }
+        return target;
+    }
+
+    private static void awaitCommit(final Path directory) throws IOException {
+        final var commit = new Commit(directory);
+        COMMITS.add(commit);
+        try {
+            while (true) {
+                ensureCommitter();
+                try {
+                    commit.done.get(1, SECONDS);
+                    return;
+                } catch (TimeoutException ignored) {
+                    // checks the committer again
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the directory sync [" + directory + "]", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    private static void commitLoop() {
+        final List<Commit> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(COMMITS.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // everything queued while the previous batch was syncing joins this batch
+            COMMITS.drainTo(batch);
+            try {
+                final Map<Path, Exception> results = new LinkedHashMap<>();
+                for (Commit commit : batch) {
+                    if (!results.containsKey(commit.directory)) {
+                        try {
+                            syncDirectory(commit.directory);
+                            results.put(commit.directory, null);
+                        } catch (IOException | RuntimeException e) {
+                            results.put(commit.directory, e);
+                        }
+                    }
+                }
+                for (Commit commit : batch) {
+                    final var error = results.get(commit.directory);
+                    if (error == null) {
+                        commit.done.complete(null);
+                    } else {
+                        commit.done.completeExceptionally(error);
+                    }
+                }
+            } finally {
+                // no writer waits forever if the committer dies
+                batch.forEach(commit -> commit.done.completeExceptionally(new IOException("Directory sync failed [" + commit.directory + "]")));
+                batch.clear();
+            }
+        }
+    }
+
+    private static void syncDirectory(final Path directory) throws IOException {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // directories can't be opened on every platform (e.g. windows) - the rename is already durable there
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private AtomicFileWriter() {
+    }
+}
@@ -0,0 +1,236 @@
+package berlin.yuna.clu.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.Charset.defaultCharset;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+
+/**
+ * Detects the charset of in memory or mapped bytes without exceptions <br>
+ * A byte order mark wins, otherwise the first charset of {@link CharsetDetector#CHARSETS} which decodes without errors.
+ */
+public class CharsetDetector {
+
+    /**
+     * Fallback chain: default, UTF-8, UTF-16, UTF-16BE, UTF-16LE, ISO-8859-1, US-ASCII
+     */
+    public static final List<Charset> CHARSETS = List.copyOf(new LinkedHashSet<>(asList(defaultCharset(), UTF_8, UTF_16, UTF_16BE, UTF_16LE, ISO_8859_1, US_ASCII)));
+
+    private static final int CHUNK = 8192;
+    private static final long SEGMENT = 64L * 1024 * 1024;
+
+    /**
+     * Decoded bytes with the detected charset
+     */
+    public static class Decoded {
+        private final Charset charset;
+        private final CharBuffer chars;
+
+        Decoded(final Charset charset, final CharBuffer chars) {
+            this.charset = charset;
+            this.chars = chars;
+        }
+
+        public Charset charset() {
+            return charset;
+        }
+
+        public CharBuffer chars() {
+            return chars;
+        }
+    }
+
+    /**
+     * Detects the charset and decodes the bytes in one pass per candidate
+     *
+     * @param bytes bytes to decode (position and limit are not modified)
+     * @return decoded text without byte order mark - null if no charset matches
+     */
+    public static Decoded decode(final ByteBuffer bytes) {
+        for (Charset charset : candidates(bytes)) {
+            final var chars = decode(bytes, charset);
+            if (chars != null) {
+                return new Decoded(charset, chars);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Detects the charset without keeping the decoded text (constant memory - suitable for mapped files)
+     *
+     * @param bytes bytes to validate (position and limit are not modified)
+     * @return detected charset - null if no charset matches
+     */
+    public static Charset detect(final ByteBuffer bytes) {
+        for (Charset charset : candidates(bytes)) {
+            if (isValid(bytes, charset)) {
+                return charset;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Detects the charset of a file by validating mapped segments (constant heap - suitable for files larger than 2GB)
+     *
+     * @param channel channel to validate
+     * @return detected charset - null if no charset matches
+     * @throws IOException if an I/O error occurs
+     */
+    public static Charset detect(final FileChannel channel) throws IOException {
+        final var head = channel.map(READ_ONLY, 0, Math.min(channel.size(), 4));
+        for (Charset charset : candidates(head)) {
+            if (isValid(channel, charset)) {
+                return charset;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param channel channel to validate
+     * @param charset charset to validate
+     * @return true if the whole file decodes without malformed or unmappable input
+     * @throws IOException if an I/O error occurs
+     */
+    public static boolean isValid(final FileChannel channel, final Charset charset) throws IOException {
+        final long size = channel.size();
+        final var out = CharBuffer.allocate(CHUNK);
+        final var decoder = decoder(charset);
+        long position = 0;
+        boolean last;
+        do {
+            final long length = Math.min(SEGMENT, size - position);
+            final var in = channel.map(READ_ONLY, position, length);
+            last = position + length >= size;
+            CoderResult result;
+            do {
+                result = decoder.decode(in, out.clear(), last);
+                if (result.isError()) {
+                    return false;
+                }
+            } while (result.isOverflow());
+            // incomplete characters at the end of the segment are decoded with the next segment
+            position += in.position();
+        } while (!last);
+        while (decoder.flush(out.clear()).isOverflow()) {
+            out.clear();
+        }
+        return true;
+    }
+
+    /**
+     * @param bytes   bytes to validate (position and limit are not modified)
+     * @param charset charset to validate
+     * @return true if the bytes decode without malformed or unmappable input
+     */
+    public static boolean isValid(final ByteBuffer bytes, final Charset charset) {
+        final var in = bytes.duplicate();
+        final var out = CharBuffer.allocate(CHUNK);
+        final var decoder = decoder(charset);
+        CoderResult result;
+        do {
+            result = decoder.decode(in, out.clear(), true);
+            if (result.isError()) {
+                return false;
+            }
+        } while (result.isOverflow());
+        while (decoder.flush(out.clear()).isOverflow()) {
+            out.clear();
+        }
+        return true;
+    }
+
+    /**
+     * @param bytes   bytes to check (position and limit are not modified)
+     * @param charset charset of the bytes
+     * @return number of bytes of the byte order mark
+     */
+    public static int bomLength(final ByteBuffer bytes, final Charset charset) {
+        final var bom = bom(bytes);
+        if (bom == UTF_8 && charset.equals(UTF_8)) {
+            return 3;
+        } else if (bom == UTF_16 && charset.equals(UTF_16BE) && (bytes.get(bytes.position()) & 0xFF) == 0xFE) {
+            return 2;
+        } else if (bom == UTF_16 && charset.equals(UTF_16LE) && (bytes.get(bytes.position()) & 0xFF) == 0xFF) {
+            return 2;
+        }
+        // UTF-16 consumes its byte order mark while decoding
+        return 0;
+    }
+
+    /**
+     * @param bytes   bytes to decode (position and limit are not modified)
+     * @param charset charset of the bytes
+     * @return decoded chars without byte order mark - null on malformed or unmappable input
+     */
+    public static CharBuffer decode(final ByteBuffer bytes, final Charset charset) {
+        final var in = bytes.duplicate();
+        in.position(in.position() + bomLength(in, charset));
+        final var decoder = decoder(charset);
+        var out = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8L, (long) Math.ceil(in.remaining() * (double) decoder.averageCharsPerByte()) + 16));
+        var decoding = true;
+        while (true) {
+            final var result = decoding ? decoder.decode(in, out, true) : decoder.flush(out);
+            if (result.isError()) {
+                return null;
+            } else if (result.isUnderflow() && decoding) {
+                decoding = false;
+            } else if (result.isUnderflow()) {
+                return out.flip();
+            } else {
+                out = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8L, out.capacity() * 2L + 16)).put(out.flip());
+            }
+        }
+    }
+
+    private static List<Charset> candidates(final ByteBuffer bytes) {
+        final var bom = bom(bytes);
+        if (bom == null) {
+            return CHARSETS;
+        }
+        final var result = new ArrayList<Charset>();
+        result.add(bom);
+        result.addAll(CHARSETS);
+        return result;
+    }
+
+    private static Charset bom(final ByteBuffer bytes) {
+        final int pos = bytes.position();
+        final int remaining = bytes.remaining();
+        if (remaining >= 3 && (bytes.get(pos) & 0xFF) == 0xEF && (bytes.get(pos + 1) & 0xFF) == 0xBB && (bytes.get(pos + 2) & 0xFF) == 0xBF) {
+            return UTF_8;
+        } else if (remaining >= 2 && (((bytes.get(pos) & 0xFF) == 0xFE && (bytes.get(pos + 1) & 0xFF) == 0xFF)
+                || ((bytes.get(pos) & 0xFF) == 0xFF && (bytes.get(pos + 1) & 0xFF) == 0xFE))) {
+            return UTF_16;
+        }
+        return null;
+    }
+
+    private static CharsetDecoder decoder(final Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    private CharsetDetector() {
+    }
+}
@@ -0,0 +1,374 @@
+package berlin.yuna.clu.util;
+
+import berlin.yuna.clu.model.SearchMatch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Searches memory mapped files line by line like {@code grep} <br>
+ * Every file is split into chunks at line boundaries which are scanned in parallel on {@link ParallelTree#POOL}.
+ * A chunk maps its own range plus a small overlap for the last line, longer lines are mapped again from their start.
+ * Lines are only decoded when they match. Matches of a file are emitted in line order while other files are still scanned,
+ * at most {@link ParallelTree#BUFFER} matches wait for the consumer.
+ * Literals are compared on the encoded bytes. Regex patterns with only ASCII characters run on a byte view of ASCII lines
+ * (no copy) if the charset is ASCII compatible, other patterns and lines on the decoded line.
+ */
+public class ContentSearch {
+
+    private static final long CHUNK = 8L * 1024 * 1024;
+    private static final long OVERLAP = 64L * 1024;
+    private static final SearchMatch END = new SearchMatch(null, 0, 0, 0, null);
+
+    /**
+     * Finds the first match within a line
+     */
+    private interface Finder {
+        /**
+         * @return byte index of the match in the buffer or -1
+         */
+        int find(ByteBuffer buffer, int start, int end);
+    }
+
+    /**
+     * @param files   files to search in
+     * @param literal text to find
+     * @param charset charset of the files
+     * @param maxHits stops the search after the given number of matches
+     * @return lazy stream of matching lines (close it to stop the search early)
+     */
+    public static Stream<SearchMatch> literal(final Collection<Path> files, final String literal, final Charset charset, final int maxHits) {
+        final var needle = literal.getBytes(charset);
+        return search(files, charset, maxHits, () -> (buffer, start, end) -> indexOf(buffer, start, end, needle));
+    }
+
+    /**
+     * @param files   files to search in
+     * @param regex   pattern to find
+     * @param charset charset of the files
+     * @param maxHits stops the search after the given number of matches
+     * @return lazy stream of matching lines (close it to stop the search early)
+     */
+    public static Stream<SearchMatch> regex(final Collection<Path> files, final Pattern regex, final Charset charset, final int maxHits) {
+        final boolean ascii = regex.pattern().chars().allMatch(c -> c < 0x80) && asciiCompatible(charset);
+        return search(files, charset, maxHits, () -> {
+            final Matcher matcher = regex.matcher("");
+            final var view = new ByteCharSequence(charset);
+            return (buffer, start, end) -> {
+                if (ascii && isAscii(buffer, start, end)) {
+                    return matcher.reset(view.wrap(buffer, start, end)).find() ? start + matcher.start() : -1;
+                }
+                final var line = decode(buffer, start, end, charset);
+                return matcher.reset(line).find() ? start + line.substring(0, matcher.start()).getBytes(charset).length : -1;
+            };
+        });
+    }
+
+    private static boolean asciiCompatible(final Charset charset) {
+        final var ascii = new byte[0x80];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        return charset.canEncode() && Arrays.equals(new String(ascii, US_ASCII).getBytes(charset), ascii);
+    }
+
+    private static boolean isAscii(final ByteBuffer buffer, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private interface FinderFactory {
+        Finder create();
+    }
+
+    private static Stream<SearchMatch> search(final Collection<Path> files, final Charset charset, final int maxHits, final FinderFactory finders) {
+        final var queue = new ArrayBlockingQueue<SearchMatch>(ParallelTree.BUFFER);
+        final var search = new Search(queue, charset, maxHits, finders);
+        final var paths = List.copyOf(files);
+        ParallelTree.POOL.execute(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                try {
+                    final List<FileTask> tasks = new ArrayList<>();
+                    for (Path path : paths) {
+                        final var task = new FileTask(path, search);
+                        task.fork();
+                        tasks.add(task);
+                    }
+                    tasks.forEach(ForkJoinTask::join);
+                } finally {
+                    // the consumer still reads until END when only the max hits stopped the search
+                    ParallelTree.put(queue, END, search.closed::get);
+                }
+            }
+        });
+        return ParallelTree.stream(queue, END, search.closed, Spliterator.NONNULL);
+    }
+
+    private static class Search {
+        private final BlockingQueue<SearchMatch> queue;
+        private final Charset charset;
+        private final int maxHits;
+        private final FinderFactory finders;
+        private final AtomicInteger hits = new AtomicInteger(0);
+        // closed by the consumer - no END needed
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        // max hits reached
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        Search(final BlockingQueue<SearchMatch> queue, final Charset charset, final int maxHits, final FinderFactory finders) {
+            this.queue = queue;
+            this.charset = charset;
+            this.maxHits = maxHits;
+            this.finders = finders;
+        }
+
+        boolean stopped() {
+            return cancelled.get() || closed.get();
+        }
+
+        boolean emit(final SearchMatch match) {
+            if (stopped() || hits.incrementAndGet() > maxHits) {
+                cancelled.set(true);
+                return false;
+            }
+            return ParallelTree.put(queue, match, closed::get);
+        }
+    }
+
+    /**
+     * Scans the chunks of a file in parallel and emits their matches in line order
+     */
+    private static class FileTask extends RecursiveAction {
+        private final Path path;
+        private final Search search;
+
+        FileTask(final Path path, final Search search) {
+            this.path = path;
+            this.search = search;
+        }
+
+        @Override
+        protected void compute() {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final long size = channel.size();
+                final List<ChunkTask> chunks = new ArrayList<>();
+                for (long start = 0; start < size; start += CHUNK) {
+                    final var chunk = new ChunkTask(channel, start, Math.min(size, start + CHUNK), search);
+                    chunk.fork();
+                    chunks.add(chunk);
+                }
+                long lines = 0;
+                for (int i = 0; i < chunks.size(); i++) {
+                    final ChunkResult result;
+                    try {
+                        result = chunks.get(i).join();
+                    } catch (UncheckedIOException e) {
+                        // later line numbers would be wrong - the rest of the file is skipped like "grep -s"
+                        chunks.subList(i + 1, chunks.size()).forEach(chunk -> chunk.cancel(true));
+                        return;
+                    }
+                    for (LocalMatch match : result.matches) {
+                        if (!search.emit(new SearchMatch(path, lines + match.lineIndex + 1, match.offset, match.column, match.line))) {
+                            break;
+                        }
+                    }
+                    lines += result.lines;
+                }
+            } catch (IOException ignored) {
+                // unreadable files are skipped like "grep -s"
+            }
+        }
+    }
+
+    private static class LocalMatch {
+        private final long lineIndex;
+        private final long offset;
+        private final int column;
+        private final String line;
+
+        LocalMatch(final long lineIndex, final long offset, final int column, final String line) {
+            this.lineIndex = lineIndex;
+            this.offset = offset;
+            this.column = column;
+            this.line = line;
+        }
+    }
+
+    private static class ChunkResult {
+        private final long lines;
+        private final List<LocalMatch> matches;
+
+        ChunkResult(final long lines, final List<LocalMatch> matches) {
+            this.lines = lines;
+            this.matches = matches;
+        }
+    }
+
+    /**
+     * Scans all lines which start within [start, end)
+     */
+    private static class ChunkTask extends RecursiveTask<ChunkResult> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final Search search;
+
+        ChunkTask(final FileChannel channel, final long start, final long end, final Search search) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.search = search;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            final List<LocalMatch> matches = new ArrayList<>();
+            long lines = 0;
+            try {
+                final long size = channel.size();
+                // one byte before the chunk tells if the chunk starts with a new line
+                long base = Math.max(0, start - 1);
+                MappedByteBuffer buffer = channel.map(READ_ONLY, base, Math.min(end - base + OVERLAP, size - base));
+                int limit = (int) (end - base);
+                int position = start == 0 ? 0 : indexOf(buffer, 0, limit, (byte) '\n') + 1;
+                if (position == 0 && start != 0) {
+                    return new ChunkResult(0, matches);
+                }
+                final var finder = search.finders.create();
+                while (position < limit && !search.stopped() && matches.size() < search.maxHits) {
+                    final int newLine = indexOf(buffer, position, buffer.limit(), (byte) '\n');
+                    if (newLine < 0 && base + buffer.limit() < size && (position > 0 || buffer.limit() < Integer.MAX_VALUE)) {
+                        // line exceeds the mapping - map again from the line start with twice the size (lines over 2 GB are cut)
+                        base += position;
+                        limit -= position;
+                        position = 0;
+                        buffer = channel.map(READ_ONLY, base, Math.min(size - base, Math.min(Integer.MAX_VALUE, 2L * buffer.limit())));
+                        continue;
+                    }
+                    final int lineEnd = newLine < 0 ? buffer.limit() : newLine;
+                    final int contentEnd = lineEnd > position && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                    final int index = finder.find(buffer, position, contentEnd);
+                    if (index >= 0) {
+                        matches.add(new LocalMatch(lines, base + index, index - position, decode(buffer, position, contentEnd, search.charset)));
+                    }
+                    lines++;
+                    position = lineEnd + 1;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new ChunkResult(lines, matches);
+        }
+    }
+
+    private static int indexOf(final ByteBuffer buffer, final int start, final int end, final byte value) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(final ByteBuffer buffer, final int start, final int end, final byte[] needle) {
+        if (needle.length == 0) {
+            return start;
+        }
+        final byte first = needle[0];
+        final int last = end - needle.length;
+        for (int i = start; i <= last; i++) {
+            if (buffer.get(i) == first && regionMatches(buffer, i, needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(final ByteBuffer buffer, final int offset, final byte[] needle) {
+        for (int j = 1; j < needle.length; j++) {
+            if (buffer.get(offset + j) != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(final ByteBuffer buffer, final int start, final int end, final Charset charset) {
+        final var bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, charset);
+    }
+
+    /**
+     * Reusable view of an ASCII buffer region for regex matching without copies
+     */
+    private static class ByteCharSequence implements CharSequence {
+        private final Charset charset;
+        private ByteBuffer buffer;
+        private int start;
+        private int end;
+
+        ByteCharSequence(final Charset charset) {
+            this.charset = charset;
+        }
+
+        ByteCharSequence wrap(final ByteBuffer buffer, final int start, final int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(final int from, final int to) {
+            return new ByteCharSequence(charset).wrap(buffer, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return decode(buffer, start, end, charset);
+        }
+    }
+
+    private ContentSearch() {
+    }
+}
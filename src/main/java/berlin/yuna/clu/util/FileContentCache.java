@@ -0,0 +1,221 @@
+package berlin.yuna.clu.util;
+
+import berlin.yuna.clu.model.FileContent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded LRU cache of decoded file contents <br>
+ * Entries are validated against size, last modified time and file key (one stat per read).
+ * Detected charsets are kept longer than the contents, so re-reading an evicted unchanged file skips the detection.
+ * Changes within the file system timestamp resolution which keep the size are not detected.
+ */
+public class FileContentCache {
+
+    private static final int MAX_CHARSETS = 4096;
+    private static final long ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Path, Stamp> charsets = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Path, Stamp> eldest) {
+            return size() > MAX_CHARSETS;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong invalidations = new AtomicLong(0);
+    private long weight;
+
+    private static class Stamp {
+        private final long size;
+        private final FileTime lastModified;
+        private final Object fileKey;
+        private final Charset charset;
+
+        Stamp(final BasicFileAttributes attributes, final Charset charset) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime();
+            this.fileKey = attributes.fileKey();
+            this.charset = charset;
+        }
+
+        boolean matches(final BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified.equals(attributes.lastModifiedTime()) && Objects.equals(fileKey, attributes.fileKey());
+        }
+    }
+
+    private static class Entry {
+        private final Stamp stamp;
+        private final FileContent content;
+        private final long weight;
+
+        Entry(final Stamp stamp, final FileContent content, final long weight) {
+            this.stamp = stamp;
+            this.content = content;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * @param maxBytes maximum weight of the cached contents (two bytes per char)
+     */
+    public FileContentCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached content or reads and caches the file
+     *
+     * @param path Filepath to read from
+     * @return content with detected charset
+     * @throws IOException if the file can't be read or no charset matches
+     */
+    public FileContent read(final Path path) throws IOException {
+        final var key = path.toAbsolutePath().normalize();
+        final var attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        final Charset known;
+        synchronized (this) {
+            final var entry = entries.get(key);
+            if (entry != null && entry.stamp.matches(attributes)) {
+                hits.incrementAndGet();
+                return entry.content;
+            } else if (entry != null) {
+                remove(key);
+                invalidations.incrementAndGet();
+            }
+            final var stamp = charsets.get(key);
+            known = stamp != null && stamp.matches(attributes) ? stamp.charset : null;
+        }
+        misses.incrementAndGet();
+        final var bytes = ByteBuffer.wrap(Files.readAllBytes(key));
+        final var chars = known == null ? null : CharsetDetector.decode(bytes, known);
+        final var decoded = chars != null ? null : CharsetDetector.decode(bytes);
+        if (chars == null && decoded == null) {
+            throw new MalformedInputException(bytes.limit());
+        }
+        final var charset = chars != null ? known : decoded.charset();
+        final var content = new FileContent(path, charset, (chars != null ? chars : decoded.chars()).toString(), bytes.limit());
+        put(key, new Stamp(attributes, charset), content);
+        return content;
+    }
+
+    /**
+     * @param path Filepath to remove from the cache
+     * @return true if the content was cached
+     */
+    public synchronized boolean invalidate(final Path path) {
+        final var key = path.toAbsolutePath().normalize();
+        charsets.remove(key);
+        if (remove(key)) {
+            invalidations.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all entries (metrics are kept)
+     */
+    public synchronized void clear() {
+        entries.clear();
+        charsets.clear();
+        weight = 0;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return current weight of the cached contents
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return entries removed to stay within {@link FileContentCache#maxBytes()}
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return entries removed as the file has changed or was invalidated
+     */
+    public long invalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return hits / (hits + misses) - 0 without reads
+     */
+    public double hitRate() {
+        final long total = hits() + misses();
+        return total == 0 ? 0 : hits() / (double) total;
+    }
+
+    private synchronized void put(final Path key, final Stamp stamp, final FileContent content) {
+        charsets.put(key, stamp);
+        final long entryWeight = content.getContent().length() * 2L + ENTRY_OVERHEAD;
+        if (entryWeight > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(stamp, content, entryWeight));
+        weight += entryWeight;
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > maxBytes && iterator.hasNext()) {
+            weight -= iterator.next().weight;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private boolean remove(final Path key) {
+        final var entry = entries.remove(key);
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+        return entry != null;
+    }
+
+    @Override
+    public String toString() {
+        return "FileContentCache{" +
+                "size=" + size() +
+                ", weight=" + weight() +
+                ", maxBytes=" + maxBytes +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
@@ -0,0 +1,161 @@
+package berlin.yuna.clu.util;
+
+import berlin.yuna.clu.model.exception.FileNotReadableException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+
+/**
+ * Lazily reads lines (\n, \r or \r\n like {@link java.io.BufferedReader#readLine()}) from memory mapped windows of a file <br>
+ * Splits at line boundaries near the middle of its range, so parallel streams scale across cores.
+ * Only the current window is mapped, so files larger than the heap or 2GB can be streamed.
+ */
+public class MappedLineSpliterator implements Spliterator<String> {
+
+    private static final long WINDOW = 64L * 1024 * 1024;
+    private static final long MIN_SPLIT = 1024L * 1024;
+    private static final long MAX_SPLIT_SCAN = 1024L * 1024;
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final int unit;
+    private final boolean littleEndian;
+    private long position;
+    private final long end;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+
+    /**
+     * @param channel channel to read from (closed by the caller)
+     * @param charset charset of the file
+     * @param start   first byte to read (after the byte order mark)
+     * @param end     last byte (exclusive)
+     */
+    public MappedLineSpliterator(final FileChannel channel, final Charset charset, final long start, final long end) {
+        this(channel, charset, start, end, charset.equals(UTF_16) || charset.equals(UTF_16BE) || charset.equals(UTF_16LE) ? 2 : 1, littleEndian(channel, charset));
+    }
+
+    private MappedLineSpliterator(final FileChannel channel, final Charset charset, final long start, final long end, final int unit, final boolean littleEndian) {
+        this.channel = channel;
+        this.charset = unit == 2 ? (littleEndian ? UTF_16LE : UTF_16BE) : charset;
+        this.position = start;
+        this.end = end;
+        this.unit = unit;
+        this.littleEndian = littleEndian;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super String> action) {
+        if (position >= end) {
+            return false;
+        }
+        long lineEnd = find(position, end);
+        final long next;
+        if (lineEnd < 0) {
+            lineEnd = end;
+            next = end;
+        } else {
+            next = afterTerminator(lineEnd);
+        }
+        final var bytes = new byte[(int) (lineEnd - position)];
+        window(position, lineEnd).get((int) (position - windowStart), bytes);
+        position = next;
+        action.accept(new String(bytes, charset));
+        return true;
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        final long length = end - position;
+        if (length < MIN_SPLIT) {
+            return null;
+        }
+        final long middle = position + ((length / 2) / unit) * unit;
+        final long terminator = find(middle, Math.min(end, middle + MAX_SPLIT_SCAN));
+        if (terminator < 0) {
+            return null;
+        }
+        final long split = afterTerminator(terminator);
+        if (split >= end) {
+            return null;
+        }
+        final var prefix = new MappedLineSpliterator(channel, charset, position, split, unit, littleEndian);
+        position = split;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    private long afterTerminator(final long terminator) {
+        return terminator + unit < end && charAt(terminator) == '\r' && charAt(terminator + unit) == '\n'
+                ? terminator + 2L * unit
+                : terminator + unit;
+    }
+
+    private long find(final long from, final long to) {
+        for (long i = from; i + unit <= to; i += unit) {
+            final int c = charAt(i);
+            if (c == '\n' || c == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int charAt(final long index) {
+        final var buffer = window(index, index + unit);
+        final int offset = (int) (index - windowStart);
+        if (unit == 1) {
+            return buffer.get(offset) & 0xFF;
+        }
+        final int first = buffer.get(offset) & 0xFF;
+        final int second = buffer.get(offset + 1) & 0xFF;
+        return littleEndian ? (second << 8) | first : (first << 8) | second;
+    }
+
+    private MappedByteBuffer window(final long from, final long to) {
+        if (window == null || from < windowStart || to > windowEnd) {
+            try {
+                final long size = Math.min(Math.max(WINDOW, to - from), Math.min(Integer.MAX_VALUE, channel.size() - from));
+                window = channel.map(READ_ONLY, from, size);
+                windowStart = from;
+                windowEnd = from + size;
+            } catch (IOException e) {
+                throw new FileNotReadableException("Could not map file segment [" + from + "-" + to + "]", e);
+            }
+        }
+        return window;
+    }
+
+    private static boolean littleEndian(final FileChannel channel, final Charset charset) {
+        if (charset.equals(UTF_16LE)) {
+            return true;
+        } else if (!charset.equals(UTF_16)) {
+            return false;
+        }
+        try {
+            final var head = channel.map(READ_ONLY, 0, Math.min(2, channel.size()));
+            return head.limit() == 2 && (head.get(0) & 0xFF) == 0xFF && (head.get(1) & 0xFF) == 0xFE;
+        } catch (IOException e) {
+            throw new FileNotReadableException("Could not read byte order mark", e);
+        }
+    }
+}
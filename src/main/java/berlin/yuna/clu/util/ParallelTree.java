@@ -0,0 +1,549 @@
+package berlin.yuna.clu.util;
+
+import berlin.yuna.clu.model.TreeResult;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.nio.file.attribute.PosixFilePermission.GROUP_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_READ;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_WRITE;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_READ;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_WRITE;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Fork/join file tree operations <br>
+ * Every directory is listed lazily with a {@link DirectoryStream} and its subdirectories are processed as parallel subtasks,
+ * so the full path list is never materialised. Symbolic links are never followed.
+ */
+public class ParallelTree {
+
+    /**
+     * Shared pool for the blocking file operations (twice the cores as the tasks mostly wait for I/O)
+     */
+    public static final ForkJoinPool POOL = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    /**
+     * Max number of results buffered for a consumer of a lazy stream
+     */
+    public static final int BUFFER = 1024;
+    private static final Path END = Path.of("");
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    /**
+     * Collects the counters of a tree operation from parallel tasks
+     */
+    static class Counter {
+        final Path root;
+        final long start = System.currentTimeMillis();
+        final LongAdder files = new LongAdder();
+        final LongAdder directories = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final Map<Path, Exception> failures = new ConcurrentHashMap<>();
+
+        Counter(final Path root) {
+            this.root = root;
+        }
+
+        void fail(final Path path, final Exception exception) {
+            failures.put(path, exception);
+        }
+
+        TreeResult result() {
+            return new TreeResult(root, files.sum(), directories.sum(), bytes.sum(), skipped.sum(), new TreeMap<>(failures), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Deletes a file or a directory with all its content in parallel
+     *
+     * @param path file or directory to delete
+     * @return deleted files, directories and bytes with failures
+     */
+    public static TreeResult delete(final Path path) {
+        final var counter = new Counter(path);
+        try {
+            final var attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isDirectory()) {
+                POOL.invoke(new DeleteTask(path, counter));
+            } else {
+                Files.delete(path);
+                counter.files.increment();
+                counter.bytes.add(attributes.size());
+            }
+        } catch (IOException e) {
+            counter.fail(path, e);
+        }
+        return counter.result();
+    }
+
+    /**
+     * Sums files, directories and bytes (apparent size like {@code du --apparent-size}) of a tree in parallel
+     *
+     * @param path     file or directory to measure
+     * @param maxDepth maximum directory depth to descend (0 = only the given path)
+     * @return counts and bytes with unreadable paths as failures
+     */
+    public static TreeResult size(final Path path, final int maxDepth) {
+        final var counter = new Counter(path);
+        try {
+            final var attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            count(counter, attributes);
+            if (attributes.isDirectory() && maxDepth > 0) {
+                POOL.invoke(new WalkTask(path, 1, maxDepth, (entry, entryAttributes) -> count(counter, entryAttributes), counter, () -> false));
+            }
+        } catch (IOException e) {
+            counter.fail(path, e);
+        }
+        return counter.result();
+    }
+
+    /**
+     * Finds entries below a directory in parallel and streams the matches while the walk is still running <br>
+     * The stream is unordered. At most {@link ParallelTree#BUFFER} matches are buffered, the walk waits while the consumer is behind.
+     * Closing the stream or dropping it unclosed stops the walk, unreadable directories are skipped.
+     *
+     * @param root     directory to search in (not part of the result)
+     * @param maxDepth maximum directory depth to descend (1 = only direct children)
+     * @param filter   filter on the entry and its attributes (symbolic links are not followed)
+     * @return lazy stream of matching paths
+     */
+    public static Stream<Path> find(final Path root, final int maxDepth, final BiPredicate<Path, BasicFileAttributes> filter) {
+        final var queue = new ArrayBlockingQueue<Path>(BUFFER);
+        final var closed = new AtomicBoolean(false);
+        final var counter = new Counter(root);
+        final var walk = new WalkTask(root, 1, maxDepth, (entry, attributes) -> {
+            if (filter.test(entry, attributes)) {
+                put(queue, entry, closed::get);
+            }
+        }, counter, closed::get);
+        POOL.execute(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                try {
+                    walk.invoke();
+                } finally {
+                    put(queue, END, closed::get);
+                }
+            }
+        });
+        return stream(queue, END, closed, Spliterator.NONNULL | Spliterator.DISTINCT);
+    }
+
+    /**
+     * Streams the elements of a queue until the end marker
+     *
+     * @param queue           bounded queue filled by producers with {@link ParallelTree#put(BlockingQueue, Object, BooleanSupplier)}
+     * @param end             marker added by the producers when they are done
+     * @param closed          set when the stream is closed, interrupted or garbage collected - producers stop on it
+     * @param characteristics spliterator characteristics
+     * @return lazy stream of the queue
+     */
+    static <T> Stream<T> stream(final BlockingQueue<T> queue, final T end, final AtomicBoolean closed, final int characteristics) {
+        final var spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, characteristics) {
+            @Override
+            public boolean tryAdvance(final Consumer<? super T> action) {
+                try {
+                    final var next = queue.take();
+                    if (next == end) {
+                        // producers are done, so there is space for the next call
+                        queue.offer(end);
+                        return false;
+                    }
+                    action.accept(next);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    closed.set(true);
+                    return false;
+                }
+            }
+        };
+        // a stream which is dropped without close must not keep the producers waiting
+        CLEANER.register(spliterator, () -> closed.set(true));
+        return StreamSupport.stream(spliterator, false).onClose(() -> closed.set(true));
+    }
+
+    /**
+     * Adds an element to a bounded queue and waits for free space as managed blocker, so the pool can compensate the waiting worker
+     *
+     * @param queue   bounded queue
+     * @param element element to add
+     * @param closed  stops waiting when true
+     * @return true if the element was added, false if closed or interrupted
+     */
+    static <T> boolean put(final BlockingQueue<T> queue, final T element, final BooleanSupplier closed) {
+        final var blocker = new ForkJoinPool.ManagedBlocker() {
+            private boolean added;
+
+            @Override
+            public boolean block() throws InterruptedException {
+                added = added || queue.offer(element, 100, MILLISECONDS);
+                return added || closed.getAsBoolean();
+            }
+
+            @Override
+            public boolean isReleasable() {
+                added = added || queue.offer(element);
+                return added || closed.getAsBoolean();
+            }
+        };
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return blocker.added;
+    }
+
+    /**
+     * @param root directory of the glob
+     * @param glob glob of the file name (e.g. {@code *.java}) or of the relative path if it contains a slash (e.g. {@code src/**}{@code /*.java})
+     * @return filter for {@link ParallelTree#find(Path, int, BiPredicate)}
+     */
+    public static BiPredicate<Path, BasicFileAttributes> glob(final Path root, final String glob) {
+        final PathMatcher matcher = root.getFileSystem().getPathMatcher("glob:" + glob);
+        return glob.contains("/")
+                ? (entry, attributes) -> matcher.matches(root.relativize(entry))
+                : (entry, attributes) -> matcher.matches(entry.getFileName());
+    }
+
+    /**
+     * Copies a file or directory tree in parallel with {@link FileChannel#transferTo} (copy_file_range/sendfile on linux) <br>
+     * POSIX permissions and last modified times are preserved, symbolic links are copied as links.
+     * Entries of the target which don't exist in the source are kept. A target inside the source directory is rejected as failure.
+     * Files are written to a temp file and renamed, so readers never see partial files and links or read only files in the target are replaced.
+     * A source file which shrinks while it is copied is copied up to its new size.
+     *
+     * @param source        file or directory to copy
+     * @param target        destination path
+     * @param skipUnchanged skips files with the same size and last modified time in the target (sync)
+     * @return copied files, directories and bytes with skipped unchanged files and failures
+     */
+    public static TreeResult copy(final Path source, final Path target, final boolean skipUnchanged) {
+        final var counter = new Counter(source);
+        try {
+            final var attributes = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isDirectory() && target.toAbsolutePath().normalize().startsWith(source.toAbsolutePath().normalize())) {
+                // would copy its own copies endlessly
+                counter.fail(source, new IOException("Target [" + target + "] is inside the source [" + source + "]"));
+            } else if (attributes.isDirectory()) {
+                POOL.invoke(new CopyTask(source, target, counter, skipUnchanged));
+            } else {
+                if (target.getParent() != null) {
+                    Files.createDirectories(target.getParent());
+                }
+                copyFile(source, target, attributes, counter, skipUnchanged);
+            }
+        } catch (IOException e) {
+            counter.fail(source, e);
+        }
+        return counter.result();
+    }
+
+    private static void copyFile(final Path source, final Path target, final BasicFileAttributes attributes, final Counter counter, final boolean skipUnchanged) {
+        try {
+            if (attributes.isSymbolicLink()) {
+                Files.deleteIfExists(target);
+                Files.createSymbolicLink(target, Files.readSymbolicLink(source));
+                counter.files.increment();
+                return;
+            } else if (skipUnchanged && unchanged(target, attributes)) {
+                counter.skipped.increment();
+                return;
+            }
+            // temp file and rename like AtomicFileWriter: replaces read only files and links instead of writing through them
+            final var tmp = target.resolveSibling("." + target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                final long bytes = transfer(source, tmp);
+                copyAttributes(source, tmp);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                counter.files.increment();
+                counter.bytes.add(bytes);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            counter.fail(source, e);
+        }
+    }
+
+    /**
+     * @return copied bytes - less than the initial size if the source was truncated meanwhile
+     */
+    private static long transfer(final Path source, final Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                final long transferred = in.transferTo(position, size - position, out);
+                if (transferred > 0) {
+                    position += transferred;
+                } else if ((size = in.size()) > position) {
+                    throw new IOException("Copy stalled at [" + position + "] of [" + size + "] bytes");
+                }
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Sets POSIX permissions of a file or directory tree in parallel (one call per entry, symbolic links are skipped) <br>
+     * Directories are changed before their content is listed. On non POSIX file systems (Windows) the granted read, write and
+     * execute permissions are set with {@link java.io.File#setReadable(boolean, boolean)} and co - owner only if neither group nor others have them.
+     *
+     * @param path        file or directory to change
+     * @param files       permissions for files
+     * @param directories permissions for directories
+     * @return changed files and directories with failures
+     */
+    public static TreeResult permissions(final Path path, final Set<PosixFilePermission> files, final Set<PosixFilePermission> directories) {
+        final var counter = new Counter(path);
+        final BiConsumer<Path, BasicFileAttributes> visitor = (entry, attributes) -> {
+            try {
+                if (!attributes.isSymbolicLink()) {
+                    setPermissions(entry, attributes.isDirectory() ? directories : files);
+                    count(counter, attributes);
+                }
+            } catch (IOException | UnsupportedOperationException e) {
+                counter.fail(entry, e);
+            }
+        };
+        try {
+            final var attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            visitor.accept(path, attributes);
+            if (attributes.isDirectory()) {
+                POOL.invoke(new WalkTask(path, 1, Integer.MAX_VALUE, visitor, counter, () -> false));
+            }
+        } catch (IOException e) {
+            counter.fail(path, e);
+        }
+        return counter.result();
+    }
+
+    private static void setPermissions(final Path path, final Set<PosixFilePermission> permissions) throws IOException {
+        if (POSIX) {
+            Files.setPosixFilePermissions(path, permissions);
+            return;
+        }
+        final var file = path.toFile();
+        if ((permissions.contains(OWNER_READ) && !file.setReadable(true, !permissions.contains(GROUP_READ) && !permissions.contains(OTHERS_READ)))
+                || (permissions.contains(OWNER_WRITE) && !file.setWritable(true, !permissions.contains(GROUP_WRITE) && !permissions.contains(OTHERS_WRITE)))
+                || (permissions.contains(OWNER_EXECUTE) && !file.setExecutable(true, !permissions.contains(GROUP_EXECUTE) && !permissions.contains(OTHERS_EXECUTE)))) {
+            throw new IOException("Could not set permissions " + permissions + " [" + path + "]");
+        }
+    }
+
+    private static boolean unchanged(final Path target, final BasicFileAttributes source) {
+        try {
+            final var existing = Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return existing.isRegularFile() && existing.size() == source.size() && existing.lastModifiedTime().equals(source.lastModifiedTime());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void copyAttributes(final Path source, final Path target) throws IOException {
+        if (POSIX) {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source, LinkOption.NOFOLLOW_LINKS));
+        }
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    private static void count(final Counter counter, final BasicFileAttributes attributes) {
+        if (attributes.isDirectory()) {
+            counter.directories.increment();
+        } else {
+            counter.files.increment();
+            counter.bytes.add(attributes.size());
+        }
+    }
+
+    /**
+     * Visits every entry up to a max depth, subdirectories are visited as parallel subtasks
+     */
+    private static class WalkTask extends RecursiveAction {
+
+        private final Path directory;
+        private final int depth;
+        private final int maxDepth;
+        private final BiConsumer<Path, BasicFileAttributes> visitor;
+        private final Counter counter;
+        private final BooleanSupplier cancelled;
+
+        WalkTask(final Path directory, final int depth, final int maxDepth, final BiConsumer<Path, BasicFileAttributes> visitor, final Counter counter, final BooleanSupplier cancelled) {
+            this.directory = directory;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.visitor = visitor;
+            this.counter = counter;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth > maxDepth || cancelled.getAsBoolean()) {
+                return;
+            }
+            final List<WalkTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (cancelled.getAsBoolean()) {
+                        break;
+                    }
+                    try {
+                        final var attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        visitor.accept(entry, attributes);
+                        if (attributes.isDirectory() && depth < maxDepth) {
+                            final var subtask = new WalkTask(entry, depth + 1, maxDepth, visitor, counter, cancelled);
+                            subtask.fork();
+                            subtasks.add(subtask);
+                        }
+                    } catch (IOException e) {
+                        counter.fail(entry, e);
+                    }
+                }
+            } catch (IOException e) {
+                counter.fail(directory, e);
+            }
+            subtasks.forEach(RecursiveAction::join);
+        }
+    }
+
+    private static class CopyTask extends RecursiveAction {
+
+        private final Path source;
+        private final Path target;
+        private final Counter counter;
+        private final boolean skipUnchanged;
+
+        CopyTask(final Path source, final Path target, final Counter counter, final boolean skipUnchanged) {
+            this.source = source;
+            this.target = target;
+            this.counter = counter;
+            this.skipUnchanged = skipUnchanged;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                Files.createDirectories(target);
+            } catch (IOException e) {
+                counter.fail(source, e);
+                return;
+            }
+            final List<ForkJoinTask<?>> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(source)) {
+                for (Path entry : entries) {
+                    try {
+                        final var attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        final var destination = target.resolve(entry.getFileName().toString());
+                        final ForkJoinTask<?> subtask = attributes.isDirectory()
+                                ? new CopyTask(entry, destination, counter, skipUnchanged)
+                                : ForkJoinTask.adapt(() -> copyFile(entry, destination, attributes, counter, skipUnchanged));
+                        subtask.fork();
+                        subtasks.add(subtask);
+                    } catch (IOException e) {
+                        counter.fail(entry, e);
+                    }
+                }
+            } catch (IOException e) {
+                counter.fail(source, e);
+            }
+            subtasks.forEach(ForkJoinTask::join);
+            try {
+                // after the content, as a read only directory would reject its children
+                copyAttributes(source, target);
+                counter.directories.increment();
+            } catch (IOException e) {
+                counter.fail(source, e);
+            }
+        }
+    }
+
+    private static class DeleteTask extends RecursiveAction {
+
+        private final Path directory;
+        private final Counter counter;
+
+        DeleteTask(final Path directory, final Counter counter) {
+            this.directory = directory;
+            this.counter = counter;
+        }
+
+        @Override
+        protected void compute() {
+            final List<DeleteTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    try {
+                        final var attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attributes.isDirectory()) {
+                            final var subtask = new DeleteTask(entry, counter);
+                            subtask.fork();
+                            subtasks.add(subtask);
+                        } else {
+                            Files.delete(entry);
+                            counter.files.increment();
+                            counter.bytes.add(attributes.size());
+                        }
+                    } catch (IOException e) {
+                        counter.fail(entry, e);
+                    }
+                }
+            } catch (IOException e) {
+                counter.fail(directory, e);
+            }
+            subtasks.forEach(RecursiveAction::join);
+            try {
+                Files.delete(directory);
+                counter.directories.increment();
+            } catch (IOException e) {
+                counter.fail(directory, e);
+            }
+        }
+    }
+
+    private ParallelTree() {
+    }
+}
@@ -0,0 +1,258 @@
+package berlin.yuna.clu.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves executables like {@code which} without spawning a process <br>
+ * Lists every PATH directory once and remembers the resolved names. A directory is listed again when its mtime changes,
+ * mtimes are checked at most once per {@link PathIndex#checkIntervalMs(long)}, so repeated lookups are map lookups.
+ * On Windows the names are case-insensitive and the extensions of {@code PATHEXT} are optional.
+ */
+public class PathIndex {
+
+    private static final boolean WINDOWS = File.separatorChar == '\\';
+    private static final List<String> EXTENSIONS = WINDOWS
+            ? Arrays.stream(Optional.ofNullable(System.getenv("PATHEXT")).orElse(".COM;.EXE;.BAT;.CMD").split(";"))
+            .filter(extension -> !extension.isEmpty())
+            .map(extension -> extension.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toList())
+            : Collections.emptyList();
+    private static final PathIndex SYSTEM = new PathIndex(System.getenv("PATH"));
+
+    private final List<Directory> directories;
+    private final Map<String, Optional<Path>> resolved = new ConcurrentHashMap<>();
+    private final AtomicLong checkIntervalMs = new AtomicLong(1000);
+    private final AtomicLong checkedMs = new AtomicLong(System.currentTimeMillis());
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong invalidations = new AtomicLong(0);
+
+    /**
+     * Directory listing validated by its mtime
+     */
+    private static class Directory {
+        private final Path path;
+        private long mtime = Long.MIN_VALUE;
+        private Map<String, Path> entries;
+
+        Directory(final Path path) {
+            this.path = path;
+        }
+
+        synchronized Path get(final String name) {
+            if (entries == null) {
+                load();
+            }
+            return entries.get(name);
+        }
+
+        /**
+         * @return true if a loaded listing is outdated (dropped to be listed again on the next lookup)
+         */
+        synchronized boolean changed() {
+            if (entries == null) {
+                return false;
+            }
+            final boolean changed = mtime != mtime(path);
+            if (changed) {
+                entries = null;
+            }
+            return changed;
+        }
+
+        private void load() {
+            mtime = mtime(path);
+            final Map<String, Path> result = new HashMap<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+                for (Path entry : stream) {
+                    final var name = entry.getFileName().toString();
+                    if (WINDOWS) {
+                        final var lower = name.toLowerCase(Locale.ROOT);
+                        result.putIfAbsent(lower, entry);
+                        EXTENSIONS.stream().filter(lower::endsWith).findFirst()
+                                .ifPresent(extension -> result.putIfAbsent(lower.substring(0, lower.length() - extension.length()), entry));
+                    } else {
+                        result.put(name, entry);
+                    }
+                }
+            } catch (IOException | RuntimeException ignored) {
+                // missing or unreadable directories contain nothing
+            }
+            entries = result;
+        }
+    }
+
+    /**
+     * @param path search path like the environment variable {@code PATH} - null for an empty index
+     */
+    public PathIndex(final String path) {
+        this.directories = Arrays.stream(Optional.ofNullable(path).orElse("").split(File.pathSeparator))
+                .filter(dir -> !dir.isEmpty())
+                .distinct()
+                .map(PathIndex::toPath)
+                .filter(Objects::nonNull)
+                .map(Directory::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return shared index of the environment variable {@code PATH}
+     */
+    public static PathIndex system() {
+        return SYSTEM;
+    }
+
+    /**
+     * @param checkIntervalMs min time between two mtime checks of the directories (default 1000)
+     * @return PathIndex
+     */
+    public PathIndex checkIntervalMs(final long checkIntervalMs) {
+        this.checkIntervalMs.set(checkIntervalMs);
+        return this;
+    }
+
+    public long checkIntervalMs() {
+        return checkIntervalMs.get();
+    }
+
+    /**
+     * @param name executable name - names with a directory are only checked, not searched
+     * @return absolute path of the first matching executable
+     */
+    public Optional<Path> which(final String name) {
+        if (name == null || name.isEmpty()) {
+            return Optional.empty();
+        }
+        validate();
+        final var cached = resolved.get(name);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        final var result = resolve(name);
+        resolved.put(name, result);
+        return result;
+    }
+
+    /**
+     * @param names executable names
+     * @return absolute paths of the found executables in the order of the given names
+     */
+    public Map<String, Path> which(final Collection<String> names) {
+        final Map<String, Path> result = new LinkedHashMap<>();
+        for (String name : names) {
+            which(name).ifPresent(path -> result.put(name, path));
+        }
+        return result;
+    }
+
+    /**
+     * Forgets all listings and resolutions
+     */
+    public void invalidate() {
+        directories.forEach(directory -> {
+            synchronized (directory) {
+                directory.entries = null;
+            }
+        });
+        resolved.clear();
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * @return directories of the index in search order
+     */
+    public List<Path> directories() {
+        return directories.stream().map(directory -> directory.path).collect(Collectors.toList());
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups which searched the directories
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of times the resolutions were dropped as directories changed
+     */
+    public long invalidations() {
+        return invalidations.get();
+    }
+
+    private void validate() {
+        final long now = System.currentTimeMillis();
+        final long checked = checkedMs.get();
+        if (now - checked >= checkIntervalMs.get() && checkedMs.compareAndSet(checked, now)) {
+            boolean changed = false;
+            for (Directory directory : directories) {
+                changed |= directory.changed();
+            }
+            if (changed) {
+                resolved.clear();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    private Optional<Path> resolve(final String name) {
+        if (name.indexOf('/') >= 0 || name.indexOf(File.separatorChar) >= 0) {
+            final var path = toPath(name);
+            return path != null && executable(path) ? Optional.of(path.toAbsolutePath()) : Optional.empty();
+        }
+        final var key = WINDOWS ? name.toLowerCase(Locale.ROOT) : name;
+        for (Directory directory : directories) {
+            final var candidate = directory.get(key);
+            if (candidate != null && executable(candidate)) {
+                return Optional.of(candidate.toAbsolutePath());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean executable(final Path path) {
+        return Files.isExecutable(path) && !Files.isDirectory(path);
+    }
+
+    private static long mtime(final Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static Path toPath(final String path) {
+        try {
+            return Path.of(path);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package berlin.yuna.clu.util;
+
+import berlin.yuna.clu.model.ProcessMetrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Samples the resource usage of a process tree from /proc/[pid]/stat, status and io while it runs <br>
+ * Commands which exit before a sample sees their cpu time report it as unknown (-1) - the reaped child cpu time of this JVM
+ * can't be attributed to a single command.
+ */
+public class ProcessSampler implements Runnable {
+
+    private static final Path PROC = Paths.get("/proc");
+    private static final boolean SUPPORTED = Files.isReadable(PROC.resolve("self").resolve("stat"));
+    // USER_HZ is 100 on every mainstream linux kernel
+    private static final long TICK_MS = 10;
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final var thread = new Thread(runnable, "clu-process-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int USER = 0;
+    private static final int SYSTEM = 1;
+    private static final int VOLUNTARY = 2;
+    private static final int INVOLUNTARY = 3;
+    private static final int READ = 4;
+    private static final int WRITE = 5;
+    private static final int DISK_READ = 6;
+    private static final int DISK_WRITE = 7;
+
+    private final Process process;
+    private final String command;
+    private final long startNs = System.nanoTime();
+    private final List<Consumer<ProcessMetrics>> listeners;
+    private final Map<Long, long[]> counters = new ConcurrentHashMap<>();
+    private final AtomicLong peakRss = new AtomicLong(0);
+    private final AtomicLong rootUserTicks = new AtomicLong(0);
+    private final AtomicLong rootSystemTicks = new AtomicLong(0);
+    private final AtomicInteger samples = new AtomicInteger(0);
+    private final AtomicReference<ProcessMetrics> result = new AtomicReference<>();
+    private ScheduledFuture<?> task;
+
+    /**
+     * Starts sampling the given process every intervalMs until {@link ProcessSampler#finish()} is called or the process exits
+     *
+     * @param process    process to observe
+     * @param command    command label for the metrics
+     * @param intervalMs sample interval - &lt; 1 disables sampling (duration is still recorded)
+     * @param listeners  notified once with the final metrics
+     * @return ProcessSampler
+     */
+    public static ProcessSampler start(final Process process, final String command, final long intervalMs, final List<Consumer<ProcessMetrics>> listeners) {
+        final var sampler = new ProcessSampler(process, command, listeners);
+        if (SUPPORTED && intervalMs > 0) {
+            sampler.run();
+            sampler.task = SCHEDULER.scheduleAtFixedRate(sampler, intervalMs, intervalMs, MILLISECONDS);
+        }
+        process.onExit().thenRun(sampler::finish);
+        return sampler;
+    }
+
+    /**
+     * @return true if /proc is available on this system
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    public ProcessSampler(final Process process, final String command, final List<Consumer<ProcessMetrics>> listeners) {
+        this.process = process;
+        this.command = command;
+        this.listeners = listeners;
+    }
+
+    @Override
+    public synchronized void run() {
+        if (result.get() != null || !process.isAlive()) {
+            return;
+        }
+        final var rss = new AtomicLong(sample(process.pid(), true));
+        process.descendants().forEach(child -> rss.addAndGet(sample(child.pid(), false)));
+        peakRss.accumulateAndGet(rss.get(), Math::max);
+        samples.incrementAndGet();
+    }
+
+    /**
+     * Stops sampling and notifies the listeners (only on the first call)
+     *
+     * @return final metrics
+     */
+    public synchronized ProcessMetrics finish() {
+        if (result.get() != null) {
+            return result.get();
+        }
+        if (task != null) {
+            task.cancel(false);
+        }
+        final var total = new long[DISK_WRITE + 1];
+        counters.values().forEach(values -> {
+            for (int i = 0; i < total.length; i++) {
+                total[i] += values[i];
+            }
+        });
+        final long userTicks = Math.max(total[USER], rootUserTicks.get());
+        final long systemTicks = Math.max(total[SYSTEM], rootSystemTicks.get());
+        // exited before a sample saw any cpu time - /proc/[pid] is gone after the reap
+        final boolean unknown = userTicks + systemTicks == 0 && !process.isAlive();
+        final var metrics = new ProcessMetrics(
+                process.pid(),
+                command,
+                (System.nanoTime() - startNs) / 1_000_000,
+                peakRss.get(),
+                unknown ? -1 : userTicks * TICK_MS,
+                unknown ? -1 : systemTicks * TICK_MS,
+                total[VOLUNTARY],
+                total[INVOLUNTARY],
+                total[READ],
+                total[WRITE],
+                total[DISK_READ],
+                total[DISK_WRITE],
+                counters.size(),
+                samples.get()
+        );
+        result.set(metrics);
+        listeners.forEach(listener -> listener.accept(metrics));
+        return metrics;
+    }
+
+    /**
+     * @return final metrics or null if the process is still running
+     */
+    public ProcessMetrics metrics() {
+        return result.get();
+    }
+
+    private long sample(final long pid, final boolean root) {
+        final var dir = PROC.resolve(String.valueOf(pid));
+        final long[] values = counters.getOrDefault(pid, new long[DISK_WRITE + 1]).clone();
+        long rss = 0;
+        try {
+            final var stat = Files.readString(dir.resolve("stat"));
+            final var fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            // fields[0] is field 3 (state) of proc(5) - utime=14, stime=15, cutime=16, cstime=17
+            values[USER] = Long.parseLong(fields[11]);
+            values[SYSTEM] = Long.parseLong(fields[12]);
+            if (root) {
+                rootUserTicks.accumulateAndGet(values[USER] + Long.parseLong(fields[13]), Math::max);
+                rootSystemTicks.accumulateAndGet(values[SYSTEM] + Long.parseLong(fields[14]), Math::max);
+            }
+            for (String line : Files.readAllLines(dir.resolve("status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    rss = kiloBytes(line);
+                } else if (line.startsWith("VmHWM:")) {
+                    peakRss.accumulateAndGet(kiloBytes(line), Math::max);
+                } else if (line.startsWith("voluntary_ctxt_switches:")) {
+                    values[VOLUNTARY] = number(line);
+                } else if (line.startsWith("nonvoluntary_ctxt_switches:")) {
+                    values[INVOLUNTARY] = number(line);
+                }
+            }
+            counters.put(pid, values);
+            readIo(dir, values);
+        } catch (IOException | RuntimeException ignored) {
+            // process exited between listing and reading
+        }
+        return rss;
+    }
+
+    private void readIo(final Path dir, final long[] values) throws IOException {
+        for (String line : Files.readAllLines(dir.resolve("io"))) {
+            if (line.startsWith("rchar:")) {
+                values[READ] = number(line);
+            } else if (line.startsWith("wchar:")) {
+                values[WRITE] = number(line);
+            } else if (line.startsWith("read_bytes:")) {
+                values[DISK_READ] = number(line);
+            } else if (line.startsWith("write_bytes:")) {
+                values[DISK_WRITE] = number(line);
+            }
+        }
+    }
+
+    private static long kiloBytes(final String line) {
+        return number(line.substring(0, line.length() - 2)) * 1024;
+    }
+
+    private static long number(final String line) {
+        return Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+    }
+}
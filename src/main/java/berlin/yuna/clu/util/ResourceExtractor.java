@@ -0,0 +1,165 @@
+package berlin.yuna.clu.util;
+
+import berlin.yuna.clu.model.WriteOption;
+import berlin.yuna.clu.model.exception.FileCopyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extracts resources concurrency safe and verified <br>
+ * Content is written to a temp file and renamed atomically, so readers never see a truncated file.
+ * A sidecar manifest ({@code .<name>.sha256}) records the sha256, size and last modified time of the extracted file,
+ * a {@link java.nio.channels.FileLock} ({@code .<name>.lock}) prevents duplicate work across processes.
+ * Once verified, a file resolves with a single stat for the lifetime of the JVM.
+ */
+public class ResourceExtractor {
+
+    private static final Map<Path, Stamp> VERIFIED = new ConcurrentHashMap<>();
+    private static final Map<Path, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private static class Stamp {
+        private final String sha256;
+        private final long size;
+        private final long lastModified;
+
+        Stamp(final String sha256, final long size, final long lastModified) {
+            this.sha256 = sha256;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        boolean matches(final BasicFileAttributes attributes) {
+            return attributes != null && attributes.isRegularFile() && size == attributes.size() && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+
+        @Override
+        public String toString() {
+            return sha256 + " " + size + " " + lastModified;
+        }
+
+        static Stamp parse(final String manifest) {
+            final var parts = manifest.trim().split(" ");
+            return parts.length == 3 ? new Stamp(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])) : null;
+        }
+    }
+
+    /**
+     * Extracts a class path resource if the target is missing or outdated
+     *
+     * @param classLoader  class loader of the resource
+     * @param resourcePath relative path of the resource
+     * @param target       destination file
+     * @return target path
+     * @throws FileCopyException if the resource doesn't exist or can't be written
+     */
+    public static Path extract(final ClassLoader classLoader, final String resourcePath, final Path target) {
+        final var key = target.toAbsolutePath().normalize();
+        final var verified = VERIFIED.get(key);
+        if (verified != null && verified.matches(attributes(key))) {
+            return target;
+        }
+        try {
+            final byte[] content;
+            try (InputStream stream = Objects.requireNonNull(classLoader.getResourceAsStream(resourcePath), "Resource not found [" + resourcePath + "]")) {
+                content = stream.readAllBytes();
+            }
+            return extract(content, target);
+        } catch (Exception e) {
+            throw new FileCopyException("Could not copy file", e);
+        }
+    }
+
+    /**
+     * Writes the content if the target is missing or has a different sha256
+     *
+     * @param content expected content
+     * @param target  destination file
+     * @return target path
+     * @throws IOException if the file can't be written
+     */
+    public static Path extract(final byte[] content, final Path target) throws IOException {
+        final var key = target.toAbsolutePath().normalize();
+        final var sha256 = sha256(content);
+        final var manifest = key.resolveSibling("." + key.getFileName() + ".sha256");
+        synchronized (LOCKS.computeIfAbsent(key, k -> new Object())) {
+            if (upToDate(key, manifest, sha256)) {
+                return target;
+            }
+            Files.createDirectories(key.getParent());
+            try (FileChannel lockChannel = FileChannel.open(key.resolveSibling("." + key.getFileName() + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                final FileLock lock = lockChannel.lock();
+                try {
+                    // another process might have finished the extraction while waiting for the lock
+                    if (upToDate(key, manifest, sha256)) {
+                        return target;
+                    }
+                    writeAtomic(key, content);
+                    final var attributes = Files.readAttributes(key, BasicFileAttributes.class);
+                    final var stamp = new Stamp(sha256, attributes.size(), attributes.lastModifiedTime().toMillis());
+                    writeAtomic(manifest, stamp.toString().getBytes(StandardCharsets.UTF_8));
+                    VERIFIED.put(key, stamp);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+        return target;
+    }
+
+    private static boolean upToDate(final Path target, final Path manifest, final String sha256) {
+        final var attributes = attributes(target);
+        if (attributes == null) {
+            return false;
+        }
+        try {
+            final var stamp = Stamp.parse(Files.readString(manifest, StandardCharsets.UTF_8));
+            if (stamp != null && stamp.sha256.equals(sha256) && stamp.matches(attributes)) {
+                VERIFIED.put(target, stamp);
+                return true;
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // missing or broken manifest - extract again
+        }
+        return false;
+    }
+
+    private static void writeAtomic(final Path target, final byte[] content) throws IOException {
+        AtomicFileWriter.write(target, ByteBuffer.wrap(content), EnumSet.of(WriteOption.SYNC));
+    }
+
+    private static BasicFileAttributes attributes(final Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String sha256(final byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private ResourceExtractor() {
+    }
+}
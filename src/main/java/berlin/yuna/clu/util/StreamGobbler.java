@@ -1,23 +1,69 @@
 package berlin.yuna.clu.util;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.List;
 import java.util.function.Consumer;
 
+import static java.util.Collections.emptyList;
+
 public class StreamGobbler implements Runnable {
     private final InputStream inputStream;
     private final List<Consumer<String>> consumerList;
+    private final List<Consumer<CharSequence>> feedList;
 
     public StreamGobbler(final InputStream inputStream, final List<Consumer<String>> consumerList) {
+        this(inputStream, consumerList, emptyList());
+    }
+
+    /**
+     * @param inputStream  stream to read
+     * @param consumerList receives every complete line (without line terminator)
+     * @param feedList     receives the raw text as soon as it arrives - also incomplete lines like prompts
+     */
+    public StreamGobbler(final InputStream inputStream, final List<Consumer<String>> consumerList, final List<Consumer<CharSequence>> feedList) {
         this.inputStream = inputStream;
         this.consumerList = consumerList;
+        this.feedList = feedList;
     }
 
     @Override
     public void run() {
-        new BufferedReader(new InputStreamReader(inputStream)).lines().forEach(string -> consumerList.forEach(c -> c.accept(
-                string)));
+        try (final var reader = new InputStreamReader(inputStream)) {
+            final var buffer = new char[8192];
+            final var line = new StringBuilder();
+            var skipLf = false;
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                if (!feedList.isEmpty()) {
+                    final var chunk = new String(buffer, 0, read);
+                    feedList.forEach(c -> c.accept(chunk));
+                }
+                for (int i = 0; i < read; i++) {
+                    final char c = buffer[i];
+                    if (skipLf && c == '\n') {
+                        skipLf = false;
+                    } else if (c == '\n' || c == '\r') {
+                        skipLf = c == '\r';
+                        accept(line);
+                    } else {
+                        skipLf = false;
+                        line.append(c);
+                    }
+                }
+            }
+            if (line.length() > 0) {
+                accept(line);
+            }
+        } catch (IOException ignored) {
+            // stream closed by the process
+        }
+    }
+
+    private void accept(final StringBuilder line) {
+        final var string = line.toString();
+        line.setLength(0);
+        consumerList.forEach(c -> c.accept(string));
     }
-}
\ No newline at end of file
+}
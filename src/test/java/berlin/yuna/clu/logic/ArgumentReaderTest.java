@@ -6,7 +6,12 @@ import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
 
 import static berlin.yuna.clu.logic.ArgumentReader.parseArgs;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -15,6 +20,8 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SuppressWarnings("ResultOfMethodCallIgnored")
 @Tag("UnitTest")
@@ -213,6 +220,133 @@ class ArgumentReaderTest {
         assertThat(arguments.getBooleans("param").size(), is(1));
     }
 
+    @Test
+    void parse_withArgumentVector_shouldTokenizeInSinglePass() {
+        final ArgumentReader args = parseArgs("deploy", "my-app", "--opts=\"-Xmx1g -Da=b\"", "--url=http://host?a=1&b=2", "--name", "it's", "-e", "-q='a b'", "--path", "/tmp/x", "y");
+
+        assertThat(args.getCommands(), is(equalTo(Arrays.asList("deploy", "my-app"))));
+        assertThat(args.getString("opts"), is(equalTo(Optional.of("-Xmx1g -Da=b"))));
+        assertThat(args.getString("url"), is(equalTo(Optional.of("http://host?a=1&b=2"))));
+        assertThat(args.getString("name"), is(equalTo(Optional.of("it's"))));
+        assertThat(args.get("e").size(), is(1));
+        assertThat(args.getString("e"), is(equalTo(Optional.empty())));
+        assertThat(args.getString("q"), is(equalTo(Optional.of("a b"))));
+        assertThat(args.getString("path"), is(equalTo(Optional.of("/tmp/x y"))));
+        assertThat(parseArgs("mvn clean install").getString("mvn"), is(equalTo(Optional.of("clean install"))));
+        assertThat(parseArgs("--empty=", "--quote=\"open -x").getString("empty"), is(equalTo(Optional.of(""))));
+        assertThat(parseArgs("--quote=\"open -x").getString("quote"), is(equalTo(Optional.of("\"open"))));
+        assertThat(parseArgs("--quote=\"open -x").isPresent("x"), is(true));
+    }
+
+    @Test
+    void parse_withLargeArgumentVector_shouldBeLinear() {
+        final String[] input = new String[200000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i % 2 == 0 ? "--key" + (i % 1000) : "value" + i;
+        }
+        final ArgumentReader args = parseArgs(input);
+        assertThat(args.size(), is(500));
+        assertThat(args.getString("key0"), is(equalTo(Optional.of("value1"))));
+        assertThat(args.get("key998").size(), is(200));
+    }
+
+    @Test
+    void repeatedKeys_shouldAppendAndReadFromCachedViews() {
+        final String[] input = new String[100000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = "--include=src/" + (i % 50000) + ",lib";
+        }
+        final ArgumentReader args = parseArgs(input);
+        assertThat(args.get("include").size(), is(50000));
+        assertThat(args.get("include").get(49999), is(equalTo("src/49999,lib")));
+        assertThat(args.getStrings("include"), is(sameInstance(args.getStrings("include"))));
+        assertThat(args.getStrings(',', "include").size(), is(50001));
+        assertThat(args.getStrings(',', "include").get(1), is(equalTo("lib")));
+        assertThrows(UnsupportedOperationException.class, () -> args.getStrings("include").add("other"));
+
+        args.addKV("include", "src/extra");
+        args.addKV("include", "src/extra");
+        assertThat(args.getStrings("include").size(), is(50001));
+        assertThat(args.get("include").contains("src/extra"), is(true));
+
+        final ArgumentReader flags = parseArgs("--help", "--help", "--x=1", "--x=1");
+        assertThat(flags.get("help"), is(equalTo(Arrays.asList(null, null))));
+        assertThat(flags.getStrings("help"), is(equalTo(Collections.singletonList(null))));
+        assertThat(flags.getStrings(',', "help"), is(equalTo(Collections.singletonList(null))));
+        assertThat(flags.get("x"), is(equalTo(Collections.singletonList("1"))));
+        assertThat(flags, is(equalTo(parseArgs("--help", "--help", "--x=1"))));
+    }
+
+    @Test
+    void values_shouldSupportModificationAndReturnSnapshots() {
+        final ArgValues values = new ArgValues(List.of("j", "i", "h", "g", "f", "e", "d", "c", "b", "a"));
+        values.add(null);
+        assertThat(values.remove(0), is(equalTo("j")));
+        assertThat(values.remove(values.size() - 1), is(nullValue()));
+        assertThat(values.contains("j"), is(false));
+        assertThat(values.contains(null), is(false));
+        assertThat(values.add("j"), is(true));
+        values.remove("j");
+        values.sort(null);
+        assertThat(values, is(equalTo(List.of("a", "b", "c", "d", "e", "f", "g", "h", "i"))));
+        assertThat(values.add("a"), is(false));
+        assertThat(values.distinct(null).get(0), is(equalTo("a")));
+        values.set(0, "z");
+        assertThat(values.contains("a"), is(false));
+        assertThat(values.distinct(null).get(0), is(equalTo("z")));
+        values.removeIf(value -> value.compareTo("e") < 0);
+        assertThat(values, is(equalTo(List.of("z", "e", "f", "g", "h", "i"))));
+        values.clear();
+        assertThat(values.isEmpty(), is(true));
+        assertThat(values.add("a"), is(true));
+
+        final ArgumentReader duplicated = parseArgs("--n=1", "--n=2", "--n=x", "--n=3");
+        ((Map<String, List<String>>) duplicated).get("n").set(0, "2");
+        assertThat(duplicated.getStrings("n"), is(equalTo(List.of("2", "x", "3"))));
+        assertThat(duplicated.getLongs("n"), is(equalTo(List.of(2L, 3L))));
+
+        final ArgumentReader args = parseArgs("--x=1", "--x=2");
+        final List<String> snapshot = args.get("x");
+        args.addKV("x", "3");
+        snapshot.remove(0);
+        assertThat(snapshot, is(equalTo(List.of("2"))));
+        assertThat(args.get("x"), is(equalTo(List.of("1", "2", "3"))));
+    }
+
+    @Test
+    void typedValues_shouldBeCachedAndAvailableAsPrimitives() {
+        final ArgumentReader args = parseArgs("--port=80 80", "--port=8080", "--port=nan", "--ids=1,2,x,3", "--ratio=0.5", "--flag");
+
+        assertThat(args.getLong("port"), is(sameInstance(args.getLong("port"))));
+        assertThat(args.getLong("port"), is(equalTo(Optional.of(8080L))));
+        assertThat(args.getLong(2, "port"), is(equalTo(Optional.empty())));
+        assertThat(args.getLongs("port"), is(sameInstance(args.getLongs("port"))));
+        assertThat(args.getAsLong("port"), is(equalTo(OptionalLong.of(8080))));
+        assertThat(args.getAsLong(1, "port"), is(equalTo(OptionalLong.of(8080))));
+        assertThat(args.getAsLong(2, "port"), is(equalTo(OptionalLong.empty())));
+        assertThat(args.getAsLong(9, "port"), is(equalTo(OptionalLong.empty())));
+        assertThat(args.getLongArray("port"), is(equalTo(new long[]{8080, 8080})));
+        assertThat(args.getLongArray(',', "ids"), is(equalTo(new long[]{1, 2, 3})));
+        assertThat(args.getLongStream(",", new String[]{"ids"}).sum(), is(6L));
+        assertThat(args.getLongStream("flag").count(), is(0L));
+
+        assertThat(args.getAsDouble("ratio"), is(equalTo(OptionalDouble.of(0.5))));
+        assertThat(args.getAsDouble(1, "ratio"), is(equalTo(OptionalDouble.empty())));
+        assertThat(args.getDouble("ratio"), is(sameInstance(args.getDouble("ratio"))));
+        assertThat(args.getDoubleArray(',', "ids"), is(equalTo(new double[]{1, 2, 3})));
+        assertThat(args.getDoubleStream("ratio").sum(), is(0.5));
+
+        args.addKV("ratio", "1.5");
+        assertThat(args.getDoubleArray("ratio"), is(equalTo(new double[]{0.5, 1.5})));
+        args.getLongArray("port")[0] = 1;
+        assertThat(args.getLongArray("port")[0], is(8080L));
+
+        assertThat(args.getLongs(null, new String[]{"port", "ids"}), is(equalTo(Arrays.asList(8080L, 8080L))));
+        assertThat(args.getLongArray(',', "port", "ids"), is(equalTo(new long[]{8080, 8080, 1, 2, 3})));
+        assertThat(args.getAsLong(",", 4, "port", "ids"), is(equalTo(OptionalLong.of(2))));
+        assertThat(args.getAsDouble(",", 2, "port", "ids"), is(equalTo(OptionalDouble.empty())));
+    }
+
     @Test
     @SuppressWarnings("all")
     void coverage() {
@@ -0,0 +1,65 @@
+package berlin.yuna.clu.logic;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static berlin.yuna.clu.logic.ExpectSession.EOF;
+import static berlin.yuna.clu.logic.ExpectSession.TIMEOUT;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@Tag("UnitTest")
+class ExpectSessionTest {
+
+    @Test
+    void expect_withPromptWithoutLineBreak_shouldMatch() {
+        try (final ExpectSession session = new Terminal().session("printf 'name: '; read name; echo \"Hello $name\"")) {
+            assertThat(session.expect(2000, "name: "), is(0));
+            session.sendLine("Yuna");
+            assertThat(session.expect(2000, "Bye", "Hello (\\w+)"), is(1));
+            assertThat(session.match().group(1), is(equalTo("Yuna")));
+            assertThat(session.expect(2000, "never"), is(EOF));
+            assertThat(session.status(), is(0));
+        }
+    }
+
+    @Test
+    void expect_inLoop_shouldBranchOnMatchingPattern() {
+        try (final ExpectSession session = new Terminal().session("while read line; do [ \"$line\" = exit ] && break; echo \"echo:$line\"; done; echo done")) {
+            for (int i = 0; i < 3; i++) {
+                session.sendLine("ping" + i);
+                assertThat(session.expect("echo:(ping\\d)"), is(0));
+                assertThat(session.match().group(1), is(equalTo("ping" + i)));
+            }
+            session.sendLine("exit");
+            assertThat(session.expect("echo:", "done"), is(1));
+            assertThat(session.toString(), is(notNullValue()));
+        }
+    }
+
+    @Test
+    void expect_withoutMatch_shouldTimeout() {
+        final Terminal terminal = new Terminal();
+        try (final ExpectSession session = terminal.session("echo start; sleep 5").timeoutMs(100)) {
+            assertThat(session.expect("end"), is(TIMEOUT));
+            assertThat(session.buffer(), containsString("start"));
+            assertThat(session.running(), is(true));
+            assertThat(session.terminal(), is(terminal));
+        }
+    }
+
+    @Test
+    void expect_withMatchAcrossChunksAfterChattyOutput_shouldMatch() {
+        try (final ExpectSession session = new Terminal().session("i=0; while [ $i -lt 2000 ]; do echo \"noise line $i\"; i=$((i+1)); done;"
+                + " printf 'pass'; sleep 0.3; printf 'word: '; read answer; echo \"got $answer\"")) {
+            assertThat(session.expect(5000, "password: ", "noise line 1999\\n(?=nothing)"), is(0));
+            assertThat(session.before(), containsString("noise line 1999"));
+            session.sendLine("secret");
+            assertThat(session.expect(2000, "got (\\w+)"), is(0));
+            assertThat(session.match().group(1), is(equalTo("secret")));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package berlin.yuna.clu.logic;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+@Tag("UnitTest")
+class FileTailTest {
+
+    @Test
+    void poll_shouldEmitAppendedLinesAndHandleTruncationAndRotation(@TempDir final Path dir) throws IOException {
+        final Path file = dir.resolve("app.log");
+        final List<String> lines = new CopyOnWriteArrayList<>();
+        try (final FileTail tail = new FileTail(file).consumer(lines::add)) {
+            assertThat(tail.poll(), is(0));
+            append(file, "first\nsecond\npart");
+            assertThat(tail.poll(), is(2));
+            append(file, "ial\r\nthird\n");
+            assertThat(tail.poll(), is(2));
+            assertThat(tail.poll(), is(0));
+            assertThat(lines, contains("first", "second", "partial", "third"));
+
+            Files.write(file, "new\n".getBytes(UTF_8));
+            assertThat(tail.poll(), is(1));
+            assertThat(tail.truncations(), is(1L));
+
+            final Path rotated = Files.move(file, dir.resolve("app.log.1"));
+            append(rotated, "old\n");
+            append(file, "fresh\n");
+            assertThat(tail.poll(), is(2));
+            assertThat(tail.rotations(), is(1L));
+            assertThat(tail.position(), is(6L));
+            assertThat(lines.subList(4, lines.size()), contains("new", "old", "fresh"));
+            assertThat(tail.lines(), is(7L));
+        }
+    }
+
+    @Test
+    void start_shouldFollowFileInBackground(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("app.log");
+        append(file, "existing\n");
+        final List<String> lines = new CopyOnWriteArrayList<>();
+        try (final FileTail tail = new FileTail(file).fromEnd(true).maxPollMs(50).consumer(lines::add).start()) {
+            assertThat(tail.running(), is(true));
+            for (int i = 0; i < 3; i++) {
+                append(file, "line " + i + "\n");
+                Thread.sleep(20);
+            }
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (lines.size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(lines, contains("line 0", "line 1", "line 2"));
+        }
+    }
+
+    @Test
+    void close_withStalledSubscriber_shouldNotHang(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("app.log");
+        append(file, "line\n".repeat(1000));
+        final FileTail tail = new FileTail(file).maxPollMs(50);
+        tail.publisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(final Flow.Subscription subscription) {
+                // never requests - the buffer fills up
+            }
+
+            @Override
+            public void onNext(final String item) {
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        tail.start();
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (tail.lines() <= tail.publisher().getMaxBufferCapacity() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        final long start = System.currentTimeMillis();
+        tail.close();
+        assertThat(System.currentTimeMillis() - start < 2000, is(true));
+        assertThat(tail.running(), is(false));
+    }
+
+    private static void append(final Path file, final String content) throws IOException {
+        Files.write(file, content.getBytes(UTF_8), CREATE, APPEND);
+    }
+}
@@ -0,0 +1,66 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.OsArch;
+import berlin.yuna.clu.model.OsArchType;
+import berlin.yuna.clu.model.OsType;
+import berlin.yuna.clu.model.exception.FileCopyException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+class NativeResolverTest {
+
+    @Test
+    void candidates_shouldFollowPatternsAndSupportedFeatures() {
+        final var feature = SystemUtil.systemInfo().cpuFeatures().stream().findFirst().orElse(null);
+        final NativeResolver resolver = new NativeResolver(getClass(), "/bin/tool")
+                .os(OsType.OS_WINDOWS).arch(OsArch.ARCH_ARM).archType(OsArchType.AT_64).osArch("AArch64")
+                .features("not-a-cpu-feature", feature == null ? "none" : feature)
+                .patterns("{base}_{os}_{arch}{type}_{feature}{ext}", "{base}_{osArch}{ext}", "{base}_{osArch}{ext}");
+
+        assertThat(resolver.candidates(), is(equalTo(feature == null
+                ? List.of("bin/tool_aarch64.exe")
+                : List.of("bin/tool_windows_arm64_" + feature + ".exe", "bin/tool_aarch64.exe"))));
+        final NativeResolver linux = new NativeResolver(getClass(), "tool").os(OsType.OS_LINUX).arch(OsArch.ARCH_AMD).archType(OsArchType.AT_64).osArch("amd64");
+        assertThat(linux.features(), is(equalTo(NativeResolver.DEFAULT_FEATURES)));
+        assertThat(linux.features(new String[0]).candidates(), contains("tool-linux-amd64", "tool-linux", "tool"));
+    }
+
+    @Test
+    void resolve_shouldExtractBestVariantAndMakeItExecutable(@TempDir final Path dir) throws IOException {
+        final Path resources = Files.createDirectories(dir.resolve("resources").resolve("bin"));
+        final NativeResolver probe = new NativeResolver(getClass(), "bin/tool").features(new String[0]);
+        final String platform = probe.candidates().get(0);
+        Files.write(resources.resolve(Path.of(platform).getFileName()), "#!/bin/sh\necho platform".getBytes(UTF_8));
+        Files.write(resources.resolve("tool"), "#!/bin/sh\necho generic".getBytes(UTF_8));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.resolve("resources").toUri().toURL()}, null)) {
+            final NativeResolver resolver = new NativeResolver(classLoader, "bin/tool").features(new String[0]).target(dir.resolve("native"));
+            assertThat(resolver.resource().orElse(null), is(equalTo(platform)));
+            final Path path = resolver.resolve();
+            assertThat(path, is(equalTo(dir.resolve("native").resolve(Path.of(platform).getFileName()))));
+            assertThat(Files.isExecutable(path), is(true));
+            assertThat(resolver.resolve(), is(equalTo(path)));
+            assertThat(new Terminal().execute(path.toString()).consoleInfo(), is(equalTo("platform")));
+
+            final NativeResolver generic = new NativeResolver(classLoader, "bin/tool").os(OsType.OS_SOLARIS).features(new String[0]).target(dir.resolve("native"));
+            assertThat(generic.resolve().getFileName().toString(), is(equalTo("tool")));
+            assertThrows(FileCopyException.class, () -> new NativeResolver(classLoader, "bin/missing").target(dir).resolve());
+        }
+    }
+}
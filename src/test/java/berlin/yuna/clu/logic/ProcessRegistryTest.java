@@ -0,0 +1,91 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.ProcessEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+@Tag("UnitTest")
+class ProcessRegistryTest {
+
+    @AfterEach
+    void tearDown() {
+        ProcessRegistry.removeShutdownHook();
+    }
+
+    @Test
+    void execute_async_shouldBeRegisteredUntilExit() {
+        final long started = ProcessRegistry.started();
+        final Terminal terminal = new Terminal().owner("registryTest").execute("sleep 5", null);
+        final List<ProcessEntry> entries = ProcessRegistry.processes();
+        final ProcessEntry entry = entries.stream().filter(e -> e.getPid() == terminal.process().pid()).findFirst().orElseThrow();
+
+        assertThat(ProcessRegistry.started(), is(greaterThan(started)));
+        assertThat(entry.getCommand(), is(equalTo("sleep 5")));
+        assertThat(entry.getOwner(), is(equalTo("registryTest")));
+        assertThat(entry.getStartTime(), is(notNullValue()));
+        assertThat(entry.isOrphaned(), is(false));
+        assertThat(entry.toString(), containsString("registryTest"));
+
+        final long orphaned = ProcessRegistry.orphaned();
+        terminal.execute("echo next");
+        assertThat(ProcessRegistry.orphaned(), is(orphaned + 1));
+        assertThat(entry.isOrphaned(), is(true));
+        assertThat(ProcessRegistry.orphans().contains(entry), is(true));
+
+        assertThat(ProcessRegistry.shutdownAll(2000), is(greaterThanOrEqualTo(1)));
+        assertThat(entry.isAlive(), is(false));
+        assertThat(ProcessRegistry.leaked(), is(greaterThanOrEqualTo(1L)));
+        assertThat(ProcessRegistry.size(), is(0));
+    }
+
+    @Test
+    void execute_async_withUnreachableOwner_shouldBeOrphaned() throws InterruptedException {
+        final ProcessEntry entry = startWithoutOwnerReference();
+        for (int i = 0; i < 100 && !entry.isOrphaned(); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertThat(entry.isAlive(), is(true));
+        assertThat(entry.isOrphaned(), is(true));
+        assertThat(ProcessRegistry.orphans().contains(entry), is(true));
+        entry.getProcess().destroy();
+    }
+
+    @Test
+    void shutdownAll_withProcessIgnoringSigterm_shouldKillAfterDeadline() {
+        final long killed = ProcessRegistry.killed();
+        final Terminal terminal = new Terminal().execute("trap '' TERM; while :; do sleep 1; done", null);
+        assertThat(terminal.running(), is(true));
+
+        ProcessRegistry.shutdownAll(200);
+        assertThat(terminal.process().isAlive(), is(false));
+        assertThat(ProcessRegistry.killed(), is(greaterThan(killed)));
+    }
+
+    @Test
+    void shutdownHook_shouldBeInstalledOnce() {
+        assertThat(ProcessRegistry.hasShutdownHook(), is(false));
+        ProcessRegistry.installShutdownHook(100);
+        ProcessRegistry.installShutdownHook(200);
+        assertThat(ProcessRegistry.hasShutdownHook(), is(true));
+        assertThat(ProcessRegistry.removeShutdownHook(), is(true));
+        assertThat(ProcessRegistry.removeShutdownHook(), is(false));
+    }
+
+    private static ProcessEntry startWithoutOwnerReference() {
+        final long pid = new Terminal().execute("sleep 5", null).process().pid();
+        return ProcessRegistry.processes().stream().filter(e -> e.getPid() == pid).findFirst().orElseThrow();
+    }
+}
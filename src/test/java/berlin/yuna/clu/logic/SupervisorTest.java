@@ -0,0 +1,68 @@
+package berlin.yuna.clu.logic;
+
+import berlin.yuna.clu.model.SupervisorState;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+@Tag("UnitTest")
+class SupervisorTest {
+
+    @Test
+    void start_withOutputAndFileProbe_shouldGetReady() throws IOException {
+        final Path dir = Files.createTempDirectory("supervisor");
+        final Path file = dir.resolve("ready.pid");
+        try (final Supervisor supervisor = new Supervisor("sleep 0.2; touch " + file + "; echo started; sleep 10")
+                .readyOnOutput("start(ed)?")
+                .readyOnFile(file)
+                .start()) {
+            assertThat(supervisor.awaitReady(5000), is(true));
+            assertThat(supervisor.state(), is(SupervisorState.READY));
+            assertThat(supervisor.startupMs(), is(greaterThanOrEqualTo(150L)));
+            assertThat(supervisor.restarts(), is(0));
+            assertThat(supervisor.terminal().running(), is(true));
+            assertThat(supervisor.terminal().consoleInfo(), is(""));
+            assertThat(supervisor.toString(), containsString("READY"));
+
+            supervisor.stop();
+            assertThat(supervisor.state(), is(SupervisorState.STOPPED));
+            assertThat(supervisor.terminal().process().isAlive(), is(false));
+        } finally {
+            SystemUtil.deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    void start_withCrashingCommand_shouldDetectCrashLoop() {
+        try (final Supervisor supervisor = new Supervisor("exit 1").readyOnOutput("never").backoffMs(10, 40).crashLoop(3, 10000).start()) {
+            assertThat(supervisor.awaitReady(5000), is(false));
+            assertThat(supervisor.state(), is(SupervisorState.CRASH_LOOP));
+            assertThat(supervisor.restarts(), is(3));
+            assertThat(supervisor.startupMs(), is(-1L));
+        }
+    }
+
+    @Test
+    void start_withPortProbe_shouldGetReadyWhenPortOpens() throws Exception {
+        final int port;
+        try (final ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        try (final Supervisor supervisor = new Supervisor("sleep 10").readyOnPort(port).start()) {
+            assertThat(supervisor.awaitReady(100), is(false));
+            assertThat(supervisor.state(), is(SupervisorState.STARTING));
+            try (final ServerSocket ignored = new ServerSocket(port)) {
+                assertThat(supervisor.awaitReady(5000), is(true));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package berlin.yuna.clu.logic;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+@Tag("UnitTest")
+class SystemInfoTest {
+
+    @Test
+    void systemInfo_withCgroupV2_shouldReadLimits(@TempDir final Path dir) throws IOException {
+        final Path proc = dir.resolve("proc");
+        final Path cgroup = dir.resolve("cgroup");
+        write(proc.resolve("self").resolve("cgroup"), "0::/app.slice\n");
+        write(proc.resolve("1").resolve("cgroup"), "0::/kubepods/besteffort/pod1\n");
+        write(proc.resolve("meminfo"), "MemTotal:       16384000 kB\nMemFree:  1000 kB\nMemAvailable:    8192000 kB\n");
+        write(proc.resolve("self").resolve("smaps"), "55d0 r--p 00000000 08:01 1 /bin/java\nSize:  4 kB\nKernelPageSize:       64 kB\n");
+        write(proc.resolve("cpuinfo"), "processor\t: 0\nFeatures\t: fp asimd AES pmull\n");
+        write(cgroup.resolve("app.slice").resolve("cpu.max"), "150000 100000\n");
+        write(cgroup.resolve("app.slice").resolve("memory.max"), "1073741824\n");
+        write(cgroup.resolve("app.slice").resolve("memory.current"), "1048576\n");
+        final SystemInfo info = new SystemInfo(proc, cgroup, dir);
+
+        assertThat(info.cpuQuota(), is(1.5));
+        assertThat(info.availableCores(), is(Math.min(2, Runtime.getRuntime().availableProcessors())));
+        assertThat(info.memoryLimitBytes(), is(1073741824L));
+        assertThat(info.totalMemoryBytes(), is(1073741824L));
+        assertThat(info.availableMemoryBytes(), is(1073741824L - 1048576L));
+        assertThat(info.container(), is(true));
+        assertThat(info.pageSize(), is(64L * 1024));
+        assertThat(info.cpuFeatures(), contains("fp", "asimd", "aes", "pmull"));
+        assertThat(info.hasCpuFeature("NEON"), is(true));
+        assertThat(info.hasCpuFeature("avx2"), is(false));
+        assertThat(info.os(), is(SystemUtil.OS));
+        assertThat(info.toString(), containsString("availableCores="));
+    }
+
+    @Test
+    void systemInfo_withCgroupV1_shouldReadLimits(@TempDir final Path dir) throws IOException {
+        final Path proc = dir.resolve("proc");
+        final Path cgroup = dir.resolve("cgroup");
+        write(proc.resolve("self").resolve("cgroup"), "4:memory:/job\n2:cpu,cpuacct:/\n");
+        write(proc.resolve("meminfo"), "MemTotal:       2048 kB\nMemAvailable:    1024 kB\n");
+        write(proc.resolve("cpuinfo"), "flags\t\t: fpu sse4_2 avx2\nflags\t\t: other\n");
+        write(cgroup.resolve("cpu,cpuacct").resolve("cpu.cfs_quota_us"), "-1\n");
+        write(cgroup.resolve("cpu,cpuacct").resolve("cpu.cfs_period_us"), "100000\n");
+        write(cgroup.resolve("memory").resolve("job").resolve("memory.limit_in_bytes"), "9223372036854771712\n");
+        final SystemInfo info = new SystemInfo(proc, cgroup, dir);
+
+        assertThat(info.cpuQuota(), is(-1d));
+        assertThat(info.availableCores(), is(Runtime.getRuntime().availableProcessors()));
+        assertThat(info.memoryLimitBytes(), is(-1L));
+        assertThat(info.totalMemoryBytes(), is(2048L * 1024));
+        assertThat(info.availableMemoryBytes(), is(1024L * 1024));
+        assertThat(info.pageSize(), is(4096L));
+        assertThat(info.cpuFeatures(), contains("fpu", "sse4_2", "avx2"));
+        assertThat(info.hasCpuFeature("AVX2"), is(true));
+    }
+
+    @Test
+    void systemInfo_shouldProbeCurrentSystem() {
+        final SystemInfo info = SystemUtil.systemInfo();
+        assertThat(info, is(SystemUtil.systemInfo()));
+        assertThat(info.availableCores(), is(greaterThan(0)));
+        assertThat(info.availableCores(), is(lessThanOrEqualTo(Runtime.getRuntime().availableProcessors())));
+        assertThat(info.totalMemoryBytes(), is(greaterThan(0L)));
+        assertThat(info.pageSize(), is(greaterThan(0L)));
+    }
+
+    private static void write(final Path path, final String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(UTF_8));
+    }
+}
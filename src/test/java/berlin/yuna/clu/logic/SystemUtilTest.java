@@ -1,35 +1,81 @@
 package berlin.yuna.clu.logic;
 
 import berlin.yuna.clu.logic.helper.TestMaps;
+import berlin.yuna.clu.model.FileContent;
+import berlin.yuna.clu.model.FileReadResult;
 import berlin.yuna.clu.model.OsArch;
 import berlin.yuna.clu.model.OsArchType;
 import berlin.yuna.clu.model.OsType;
+import berlin.yuna.clu.model.SearchMatch;
+import berlin.yuna.clu.model.TreeResult;
+import berlin.yuna.clu.model.WriteOption;
 import berlin.yuna.clu.model.exception.FileCopyException;
+import berlin.yuna.clu.model.exception.FileNotReadableException;
+import berlin.yuna.clu.model.exception.FileWriteException;
 import berlin.yuna.clu.model.exception.TerminalExecutionException;
+import berlin.yuna.clu.util.ArchiveExtractor;
+import berlin.yuna.clu.util.FileContentCache;
+import berlin.yuna.clu.util.ParallelTree;
+import berlin.yuna.clu.util.PathIndex;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static berlin.yuna.clu.logic.helper.TestMaps.ARCH_TEST_MAP;
 import static berlin.yuna.clu.logic.helper.TestMaps.OS_TEST_MAP;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_READ;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_READ;
 import static java.nio.file.attribute.PosixFilePermission.OTHERS_WRITE;
 import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
 import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
 import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @Tag("UnitTest")
@@ -124,6 +170,140 @@ class SystemUtilTest {
         assertThrows(NullPointerException.class, () -> SystemUtil.copyResourceToTemp(getClass(), null));
     }
 
+    @Test
+    void copyResourceFile_shouldReplaceOutdatedFileAndExtractOnceConcurrently() throws Exception {
+        final Path expected = Paths.get(requireNonNull(getClass().getClassLoader().getResource(testFileOrigin)).toURI());
+        Files.write(testFileCopy.toPath(), "stale".getBytes(UTF_8));
+        final Path path = SystemUtil.copyResourceToTemp(getClass(), testFileOrigin);
+        assertThat(Files.readAllBytes(path), is(equalTo(Files.readAllBytes(expected))));
+
+        Files.write(path, "corrupted".getBytes(UTF_8));
+        final List<Path> results = IntStream.range(0, 8).parallel().mapToObj(i -> SystemUtil.copyResourceToTemp(getClass(), testFileOrigin)).toList();
+        assertThat(results.stream().distinct().toList(), contains(path));
+        assertThat(Files.readAllBytes(path), is(equalTo(Files.readAllBytes(expected))));
+        assertThrows(FileCopyException.class, () -> SystemUtil.copyResourceToTemp(getClass(), "missing.bin"));
+    }
+
+    @Test
+    void extractResources_shouldExtractDirectoriesAndArchives(@TempDir final Path dir) throws Exception {
+        final TreeResult fromDirectory = SystemUtil.extractResources(getClass(), "tools", dir.resolve("dir"));
+        assertThat(fromDirectory.isSuccess(), is(true));
+        assertThat(SystemUtil.readFile(dir.resolve("dir").resolve("conf").resolve("app.properties")), is(equalTo("name=tool\n")));
+        assertThat(SystemUtil.extractResources(getClass(), "tools", dir.resolve("dir")).getSkipped(), is(2L));
+
+        final TreeResult fromTar = SystemUtil.extractArchive(getClass(), "tools.tar.gz", dir.resolve("tar"));
+        assertThat(fromTar.isSuccess(), is(true));
+        assertThat(fromTar.getFiles(), is(2L));
+        assertThat(fromTar.getDirectories(), is(2L));
+        assertThat(Files.isExecutable(dir.resolve("tar").resolve("bin").resolve("run.sh")), is(true));
+        assertThat(Files.isExecutable(dir.resolve("tar").resolve("conf").resolve("app.properties")), is(false));
+        assertThat(SystemUtil.extractArchive(getClass(), "tools.tar.gz", dir.resolve("tar")).getSkipped(), is(2L));
+
+        final Path jar = dir.resolve("tools.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("tools/"));
+            zip.putNextEntry(new ZipEntry("tools/bin/"));
+            zip.putNextEntry(new ZipEntry("tools/bin/run.sh"));
+            zip.write("#!/bin/sh\necho tool\n".getBytes(UTF_8));
+            zip.putNextEntry(new ZipEntry("tools/conf/app.properties"));
+            zip.write("name=tool\n".getBytes(UTF_8));
+            zip.putNextEntry(new ZipEntry("../evil.txt"));
+            zip.write("evil".getBytes(UTF_8));
+        }
+        final TreeResult fromZip = ArchiveExtractor.extract(Files.newInputStream(jar), dir.resolve("zip"));
+        assertThat(fromZip.getFiles(), is(2L));
+        assertThat(fromZip.getDirectories(), is(2L));
+        assertThat(fromZip.getFailures().size(), is(1));
+        assertThat(Files.exists(dir.resolve("evil.txt")), is(false));
+        assertThat(Files.isExecutable(dir.resolve("zip").resolve("tools").resolve("bin").resolve("run.sh")), is(true));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            final TreeResult fromJar = ArchiveExtractor.extractDirectory(loader, "tools/", dir.resolve("jar"));
+            assertThat(fromJar.getFiles(), is(2L));
+            assertThat(fromJar.getDirectories(), is(1L));
+            assertThat(SystemUtil.readFile(dir.resolve("jar").resolve("bin").resolve("run.sh")), startsWith("#!/bin/sh"));
+            assertThat(ArchiveExtractor.extractDirectory(loader, "tools", dir.resolve("jar")).getSkipped(), is(2L));
+        }
+        assertThrows(FileCopyException.class, () -> SystemUtil.extractArchive(getClass(), "missing.tar.gz", dir));
+    }
+
+    @Test
+    void extractArchive_withMaliciousLinks_shouldNotWriteOutsideTarget(@TempDir final Path dir) throws Exception {
+        final Path outside = Files.createDirectories(dir.resolve("outside"));
+        final Path target = Files.createDirectories(dir.resolve("target"));
+        Files.createSymbolicLink(target.resolve("existing"), outside);
+        final var tar = new ByteArrayOutputStream();
+        tarEntry(tar, "bin/run.sh", '0', "#!/bin/sh\n".getBytes(UTF_8), "");
+        tarEntry(tar, "lib", '2', new byte[0], outside.toString());
+        tarEntry(tar, "lib/passwd", '0', "evil".getBytes(UTF_8), "");
+        tarEntry(tar, "up", '2', new byte[0], "../outside");
+        tarEntry(tar, "up/passwd", '0', "evil".getBytes(UTF_8), "");
+        tarEntry(tar, "existing/passwd", '0', "evil".getBytes(UTF_8), "");
+        tarEntry(tar, "current", '2', new byte[0], "bin");
+        tar.write(new byte[1024]);
+
+        final TreeResult result = ArchiveExtractor.extract(new ByteArrayInputStream(tar.toByteArray()), target);
+        try (Stream<Path> files = Files.list(outside)) {
+            assertThat(files.count(), is(0L));
+        }
+        assertThat(result.getFailures().keySet(), is(equalTo(Set.of(target.resolve("lib"), target.resolve("up"), target.resolve("existing").resolve("passwd")))));
+        assertThat(Files.isSymbolicLink(target.resolve("lib")), is(false));
+        assertThat(Files.readSymbolicLink(target.resolve("current")), is(equalTo(Paths.get("bin"))));
+        assertThat(SystemUtil.readFile(target.resolve("current").resolve("run.sh")), startsWith("#!/bin/sh"));
+    }
+
+    @Test
+    void extractArchive_withChainedLinks_shouldNotEscapeTarget(@TempDir final Path dir) throws Exception {
+        final Path target = Files.createDirectories(dir.resolve("target"));
+        final var tar = new ByteArrayOutputStream();
+        tarEntry(tar, "b", '2', new byte[0], ".");
+        tarEntry(tar, "a", '2', new byte[0], "b/..");
+        tarEntry(tar, "c", '2', new byte[0], "d/..");
+        tarEntry(tar, "d", '2', new byte[0], ".");
+        tarEntry(tar, "e", '2', new byte[0], "b/b");
+        tar.write(new byte[1024]);
+
+        final TreeResult result = ArchiveExtractor.extract(new ByteArrayInputStream(tar.toByteArray()), target);
+        assertThat(result.getFailures().keySet(), is(equalTo(Set.of(target.resolve("a"), target.resolve("c")))));
+        assertThat(Files.exists(target.resolve("a"), LinkOption.NOFOLLOW_LINKS), is(false));
+        assertThat(Files.exists(target.resolve("c"), LinkOption.NOFOLLOW_LINKS), is(false));
+        assertThat(target.resolve("e").toRealPath(), is(equalTo(target.toRealPath())));
+    }
+
+    @Test
+    void extractArchive_withLargeEntries_shouldStreamThem(@TempDir final Path dir) throws Exception {
+        final byte[] big = new byte[3 * 1024 * 1024 + 7];
+        new Random(42).nextBytes(big);
+        big[0] = 0x7F;
+        big[1] = 'E';
+        big[2] = 'L';
+        big[3] = 'F';
+        final Path jar = dir.resolve("big.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("bin/tool"));
+            zip.write(big);
+            zip.putNextEntry(new ZipEntry("small.txt"));
+            zip.write("small".getBytes(UTF_8));
+        }
+        final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        tarEntry(tar, "bin/tool", '0', big, "");
+        tarEntry(tar, "small.txt", '0', "small".getBytes(UTF_8), "");
+        tar.write(new byte[1024]);
+
+        final TreeResult fromZip = ArchiveExtractor.extract(Files.newInputStream(jar), dir.resolve("zip"));
+        final TreeResult fromTar = ArchiveExtractor.extract(new ByteArrayInputStream(tar.toByteArray()), dir.resolve("tar"));
+        for (TreeResult result : List.of(fromZip, fromTar)) {
+            assertThat(result.isSuccess(), is(true));
+            assertThat(result.getFiles(), is(2L));
+            assertThat(result.getBytes(), is(big.length + 5L));
+        }
+        assertThat(Files.readAllBytes(dir.resolve("zip").resolve("bin").resolve("tool")), is(equalTo(big)));
+        assertThat(Files.readAllBytes(dir.resolve("tar").resolve("bin").resolve("tool")), is(equalTo(big)));
+        assertThat(Files.isExecutable(dir.resolve("zip").resolve("bin").resolve("tool")), is(true));
+        assertThat(SystemUtil.readFile(dir.resolve("tar").resolve("small.txt")), is(equalTo("small")));
+        assertThat(ArchiveExtractor.extract(Files.newInputStream(jar), dir.resolve("zip")).getSkipped(), is(2L));
+    }
+
     @Test
     void fixFilePermissions_shouldBeSuccessful() {
         final Path input = SystemUtil.copyResourceToTemp(getClass(), testFileOrigin);
@@ -132,6 +312,28 @@ class SystemUtilTest {
         assertThat(SystemUtil.setFilePermissions(input, OWNER_EXECUTE), is(true));
     }
 
+    @Test
+    void setFilePermissions_shouldBatchAndSetExactAndRecursive(@TempDir final Path dir) throws Exception {
+        final Path file = Files.write(dir.resolve("file.txt"), new byte[1]);
+        Files.setPosixFilePermissions(file, Set.of(OWNER_READ));
+        assertThat(SystemUtil.setFilePermissions(file, GROUP_READ, OTHERS_READ), is(true));
+        assertThat(Files.getPosixFilePermissions(file), is(equalTo(Set.of(OWNER_READ, GROUP_READ, OTHERS_READ))));
+        assertThat(SystemUtil.setFilePermissions(file, Set.of(OWNER_READ, OWNER_WRITE)), is(true));
+        assertThat(Files.getPosixFilePermissions(file), is(equalTo(Set.of(OWNER_READ, OWNER_WRITE))));
+        assertThat(SystemUtil.setFilePermissions(dir.resolve("missing"), OWNER_READ), is(false));
+        assertThat(SystemUtil.setFilePermissions(dir.resolve("missing"), Set.of(OWNER_READ)), is(false));
+
+        for (int i = 0; i < 5; i++) {
+            Files.write(Files.createDirectories(dir.resolve("tree").resolve("sub" + i)).resolve("file.txt"), new byte[1]);
+        }
+        final TreeResult result = SystemUtil.setTreePermissions(dir.resolve("tree"), Set.of(OWNER_READ, OWNER_WRITE, GROUP_READ));
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getFiles(), is(5L));
+        assertThat(result.getDirectories(), is(6L));
+        assertThat(Files.getPosixFilePermissions(dir.resolve("tree").resolve("sub3").resolve("file.txt")), is(equalTo(Set.of(OWNER_READ, OWNER_WRITE, GROUP_READ))));
+        assertThat(Files.getPosixFilePermissions(dir.resolve("tree").resolve("sub3")), is(equalTo(Set.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE, GROUP_READ, GROUP_EXECUTE))));
+    }
+
     @Test
     void fixFilePermissions_WithoutPosixPermissions_shouldNotThrowException() throws Exception {
         final Path path = SystemUtil.copyResourceToTemp(getClass(), testFileOrigin);
@@ -176,6 +378,372 @@ class SystemUtilTest {
         assertThrows(Exception.class, () -> SystemUtil.readFileLines(null));
     }
 
+    @Test
+    void readFileContent_shouldDetectCharset(@TempDir final Path dir) throws Exception {
+        final Path utf8Bom = Files.write(dir.resolve("utf8bom.txt"), new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'h', 'i', (byte) 0xC3, (byte) 0xA4});
+        final Path utf16Le = Files.write(dir.resolve("utf16le.txt"), "\uFEFFhi\u00e4\r\nline2".getBytes(UTF_16LE));
+        final Path latin1 = Files.write(dir.resolve("latin1.txt"), "hi\u00e4\nline2\rline3".getBytes(ISO_8859_1));
+
+        final FileContent utf8Content = SystemUtil.readFileContent(utf8Bom);
+        assertThat(utf8Content.getCharset(), is(UTF_8));
+        assertThat(utf8Content.getContent(), is(equalTo("hi\u00e4")));
+        assertThat(utf8Content.getSize(), is(7L));
+        assertThat(utf8Content.getPath(), is(utf8Bom));
+
+        assertThat(SystemUtil.readFileContent(utf16Le).getCharset().name(), startsWith("UTF-16"));
+        assertThat(SystemUtil.readFileLines(utf16Le), is(equalTo(List.of("hi\u00e4", "line2"))));
+
+        assertThat(SystemUtil.readFileContent(latin1).getCharset(), is(ISO_8859_1));
+        assertThat(SystemUtil.readFile(latin1), is(equalTo("hi\u00e4\nline2\rline3")));
+        assertThat(SystemUtil.readFileLines(latin1), is(equalTo(List.of("hi\u00e4", "line2", "line3"))));
+    }
+
+    @Test
+    void streamFileLines_shouldStreamLazilyAndInParallel(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("large.txt");
+        final List<String> expected = IntStream.range(0, 200_000).mapToObj(i -> i % 3 == 0 ? "" : "line \u00e4 " + i).toList();
+        Files.write(file, (String.join("\r\n", expected) + "\n").getBytes(UTF_8));
+
+        try (Stream<String> lines = SystemUtil.streamFileLines(file)) {
+            assertThat(lines.toList(), is(equalTo(expected)));
+        }
+        try (Stream<String> lines = SystemUtil.streamFileLines(file)) {
+            assertThat(lines.parallel().toList(), is(equalTo(expected)));
+        }
+        try (Stream<String> lines = SystemUtil.streamFileLines(file)) {
+            assertThat(lines.parallel().filter(line -> line.endsWith("7")).count(), is(expected.stream().filter(line -> line.endsWith("7")).count()));
+        }
+    }
+
+    @Test
+    void streamFileLines_shouldMatchReadFileLines(@TempDir final Path dir) throws Exception {
+        final Path utf16Le = Files.write(dir.resolve("utf16le.txt"), "\uFEFFhi\u00e4\r\nline2\rline3\n\n".getBytes(UTF_16LE));
+        final Path latin1 = Files.write(dir.resolve("latin1.txt"), "hi\u00e4\nline2\rline3".getBytes(ISO_8859_1));
+        final Path empty = Files.write(dir.resolve("empty.txt"), new byte[0]);
+
+        for (Path path : List.of(utf16Le, latin1, empty)) {
+            try (Stream<String> lines = SystemUtil.streamFileLines(path)) {
+                assertThat(path.toString(), lines.toList(), is(equalTo(SystemUtil.readFileLines(path))));
+            }
+        }
+        assertThrows(FileNotReadableException.class, () -> SystemUtil.streamFileLines(dir.resolve("missing.txt")));
+    }
+
+    @Test
+    void readFiles_shouldReadConcurrentlyAndReportErrors(@TempDir final Path dir) throws Exception {
+        final List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            paths.add(Files.write(dir.resolve("file_" + i + ".txt"), ("content \u00e4 " + i).getBytes(i % 2 == 0 ? UTF_8 : ISO_8859_1)));
+        }
+        final Path missing = dir.resolve("missing.txt");
+        paths.add(25, missing);
+
+        final FileReadResult result = SystemUtil.readFiles(paths, 8);
+        assertThat(result.isSuccess(), is(false));
+        assertThat(result.getConcurrency(), is(8));
+        assertThat(result.getContents().size(), is(50));
+        assertThat(result.getErrors().keySet(), contains(missing));
+        assertThat(result.getErrors().get(missing), is(instanceOf(FileNotReadableException.class)));
+        assertThat(result.getContents().keySet().iterator().next(), is(equalTo(paths.get(0))));
+        assertThat(result.getContents().get(paths.get(1)).getContent(), is(equalTo("content \u00e4 1")));
+        assertThat(result.getContents().get(paths.get(1)).getCharset(), is(ISO_8859_1));
+        assertThat(result.getBytes(), is(result.getContents().values().stream().mapToLong(FileContent::getSize).sum()));
+        assertThat(result.getFilesPerSecond(), is(greaterThan(0d)));
+        assertThat(SystemUtil.readFiles(List.of()).getContents().isEmpty(), is(true));
+    }
+
+    @Test
+    void searchFiles_shouldFindLiteralsAndRegexInParallelChunks(@TempDir final Path dir) throws Exception {
+        final Path large = dir.resolve("large.log");
+        final StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 600_000; i++) {
+            content.append(i % 100_000 == 0 ? "ERROR \u00e4 request " + i : "INFO request " + i).append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        SystemUtil.writeFile(large, content);
+        assertThat(Files.size(large), is(greaterThan(8L * 1024 * 1024)));
+        final Path small = SystemUtil.writeFile(dir.resolve("small.log"), "first\nsecond ERROR\n");
+
+        try (Stream<SearchMatch> matches = SystemUtil.searchFiles(List.of(large), "ERROR", 100)) {
+            final List<SearchMatch> result = matches.toList();
+            assertThat(result.stream().map(SearchMatch::getLineNumber).toList(), contains(100_000L, 200_000L, 300_000L, 400_000L, 500_000L, 600_000L));
+            assertThat(result.get(0).getLine(), is(equalTo("ERROR \u00e4 request 100000")));
+            assertThat(result.get(0).getColumn(), is(0));
+            assertThat(result.get(0).getPath(), is(large));
+        }
+        try (Stream<SearchMatch> matches = SystemUtil.searchFiles(List.of(small, large), Pattern.compile("request \\d+0{5}$"), 100)) {
+            assertThat(matches.count(), is(6L));
+        }
+        try (Stream<SearchMatch> matches = SystemUtil.searchFiles(List.of(small), Pattern.compile("\u00e4|ERROR"), 100)) {
+            final SearchMatch match = matches.findFirst().orElseThrow();
+            assertThat(match.getLineNumber(), is(2L));
+            assertThat(match.getColumn(), is(7));
+            assertThat(match.getOffset(), is(13L));
+        }
+        try (Stream<SearchMatch> matches = SystemUtil.searchFiles(List.of(large, dir.resolve("missing.log")), "INFO", 10)) {
+            assertThat(matches.count(), is(10L));
+        }
+    }
+
+    @Test
+    void searchFiles_withLinesAcrossChunksAndMultiByteChars_shouldMatchDecodedLines(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("long.log");
+        final StringBuilder content = new StringBuilder();
+        while (content.length() < 8 * 1024 * 1024 - 1000) {
+            content.append("INFO request\n");
+        }
+        final String longLine = "x".repeat(300_000) + " ERROR \u00e4b";
+        content.append(longLine).append("\nlast ERROR\n");
+        SystemUtil.writeFile(file, content);
+        final long lines = content.chars().filter(c -> c == '\n').count();
+
+        try (Stream<SearchMatch> matches = SystemUtil.searchFiles(List.of(file), "ERROR", 100)) {
+            final List<SearchMatch> result = matches.toList();
+            assertThat(result.stream().map(SearchMatch::getLineNumber).toList(), contains(lines - 1, lines));
+            assertThat(result.get(0).getLine(), is(equalTo(longLine)));
+            assertThat(result.get(0).getColumn(), is(300_001));
+        }
+        try (Stream<SearchMatch> matches = SystemUtil.searchFiles(List.of(file), Pattern.compile("ERROR .b$"), 100)) {
+            final SearchMatch match = matches.findFirst().orElseThrow();
+            assertThat(match.getLine(), is(equalTo(longLine)));
+            assertThat(match.getColumn(), is(300_001));
+        }
+        try (Stream<SearchMatch> matches = SystemUtil.searchFiles(List.of(file), "INFO", 5_000)) {
+            assertThat(matches.count(), is(5_000L));
+        }
+    }
+
+    @Test
+    void fileCache_shouldServeUnchangedFilesAndEvict(@TempDir final Path dir) throws Exception {
+        final Path first = Files.write(dir.resolve("first.txt"), "hi\u00e4\nline2".getBytes(ISO_8859_1));
+        final Path second = Files.write(dir.resolve("second.txt"), "second".getBytes(UTF_8));
+        final FileContentCache cache = SystemUtil.fileCache(1024);
+        try {
+            assertThat(SystemUtil.fileCache(), is(cache));
+            assertThat(SystemUtil.readFile(first), is(equalTo("hi\u00e4\nline2")));
+            assertThat(SystemUtil.readFileLines(first), contains("hi\u00e4", "line2"));
+            assertThat(SystemUtil.readFileContent(first).getCharset(), is(ISO_8859_1));
+            assertThat(cache.misses(), is(1L));
+            assertThat(cache.hits(), is(2L));
+
+            Files.write(first, "changed".getBytes(UTF_8));
+            Files.setLastModifiedTime(first, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+            assertThat(SystemUtil.readFile(first), is(equalTo("changed")));
+            assertThat(cache.invalidations(), is(1L));
+
+            SystemUtil.readFile(second);
+            assertThat(cache.size(), is(2));
+            assertThat(cache.weight(), is(lessThanOrEqualTo(cache.maxBytes())));
+            assertThat(cache.invalidate(second), is(true));
+            assertThat(cache.size(), is(1));
+
+            final FileContentCache small = SystemUtil.fileCache(280);
+            SystemUtil.readFile(first);
+            SystemUtil.readFile(second);
+            assertThat(small.size(), is(1));
+            assertThat(small.evictions(), is(1L));
+        } finally {
+            SystemUtil.fileCache((FileContentCache) null);
+        }
+        assertThat(SystemUtil.fileCache(), is(nullValue()));
+    }
+
+    @Test
+    void writeFile_shouldReplaceAtomicallyAndKeepPermissions(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("state.txt");
+        assertThat(SystemUtil.writeFile(file, "first \u00e4"), is(file));
+        assertThat(SystemUtil.readFile(file), is(equalTo("first \u00e4")));
+        Files.setPosixFilePermissions(file, Set.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE));
+
+        final String large = "x".repeat(200_000) + "\u00e4";
+        SystemUtil.writeFile(file, new StringBuilder(large), ISO_8859_1, WriteOption.SYNC, WriteOption.SYNC_DIRECTORY);
+        assertThat(Files.size(file), is(200_001L));
+        assertThat(SystemUtil.readFile(file), is(equalTo(large)));
+        assertThat(Files.getPosixFilePermissions(file), is(equalTo(Set.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE))));
+
+        final ByteBuffer bytes = ByteBuffer.wrap("bytes".getBytes(UTF_8));
+        SystemUtil.writeFile(file, bytes);
+        assertThat(bytes.position(), is(0));
+        assertThat(SystemUtil.readFile(file), is(equalTo("bytes")));
+
+        IntStream.range(0, 100).parallel().forEach(i -> SystemUtil.writeFile(dir.resolve("state_" + i + ".txt"), "state " + i, WriteOption.GROUP_COMMIT));
+        assertThat(SystemUtil.readFile(dir.resolve("state_42.txt")), is(equalTo("state 42")));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.filter(path -> path.getFileName().toString().endsWith(".tmp")).count(), is(0L));
+        }
+        assertThrows(FileWriteException.class, () -> SystemUtil.writeFile(file, "\u00e4", US_ASCII));
+        assertThrows(FileWriteException.class, () -> SystemUtil.writeFile(dir.resolve("missing").resolve("file.txt"), "text"));
+        assertThat(SystemUtil.readFile(file), is(equalTo("bytes")));
+    }
+
+    @Test
+    void deleteTree_shouldDeleteInParallelAndCount(@TempDir final Path dir) throws Exception {
+        final Path root = dir.resolve("root");
+        for (int i = 0; i < 20; i++) {
+            final Path sub = Files.createDirectories(root.resolve("a" + i).resolve("b"));
+            Files.write(sub.resolve("file.txt"), new byte[10]);
+            Files.write(sub.getParent().resolve("file.txt"), new byte[5]);
+        }
+        final Path outside = Files.write(dir.resolve("outside.txt"), new byte[7]);
+        Files.createSymbolicLink(root.resolve("link"), outside);
+
+        final TreeResult result = SystemUtil.deleteTree(root);
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getFiles(), is(41L));
+        assertThat(result.getDirectories(), is(41L));
+        assertThat(result.getBytes(), is(greaterThanOrEqualTo(300L)));
+        assertThat(Files.exists(root), is(false));
+        assertThat(Files.exists(outside), is(true));
+
+        assertThat(SystemUtil.deleteDirectory(outside), is(true));
+        assertThat(SystemUtil.deleteDirectory(root), is(false));
+        assertThat(SystemUtil.deleteTree(root).getFailures().keySet(), contains(root));
+    }
+
+    @Test
+    void findFiles_shouldMatchGlobAndDepth(@TempDir final Path dir) throws Exception {
+        for (int i = 0; i < 10; i++) {
+            final Path sub = Files.createDirectories(dir.resolve("src").resolve("pkg" + i));
+            Files.write(sub.resolve("Main" + i + ".java"), new byte[100]);
+            Files.write(sub.resolve("notes.txt"), new byte[1]);
+        }
+        Files.write(dir.resolve("Top.java"), new byte[10]);
+
+        try (Stream<Path> found = SystemUtil.findFiles(dir, "*.java")) {
+            assertThat(found.count(), is(11L));
+        }
+        try (Stream<Path> found = SystemUtil.findFiles(dir, "src/**/*.java")) {
+            assertThat(found.count(), is(10L));
+        }
+        try (Stream<Path> found = SystemUtil.findFiles(dir, "*.java", 1)) {
+            assertThat(found.toList(), contains(dir.resolve("Top.java")));
+        }
+        try (Stream<Path> found = SystemUtil.findFiles(dir, (path, attributes) -> attributes.isRegularFile() && attributes.size() == 1, Integer.MAX_VALUE)) {
+            assertThat(found.count(), is(10L));
+        }
+        try (Stream<Path> found = SystemUtil.findFiles(dir, "*", Integer.MAX_VALUE)) {
+            assertThat(found.findAny().isPresent(), is(true));
+        }
+
+        final TreeResult size = SystemUtil.treeSize(dir);
+        assertThat(size.getFiles(), is(21L));
+        assertThat(size.getDirectories(), is(12L));
+        assertThat(size.getBytes(), is(1020L));
+        assertThat(SystemUtil.treeSize(dir, 1).getBytes(), is(10L));
+        assertThat(SystemUtil.treeSize(dir.resolve("Top.java")).getFiles(), is(1L));
+        assertThat(SystemUtil.treeSize(dir.resolve("missing")).isSuccess(), is(false));
+    }
+
+    @Test
+    void findFiles_withSlowConsumer_shouldBufferLimitedMatches(@TempDir final Path dir) throws Exception {
+        final int total = ParallelTree.BUFFER * 3;
+        for (int i = 0; i < total; i++) {
+            Files.write(dir.resolve("file" + i + ".txt"), new byte[1]);
+        }
+        final AtomicInteger visited = new AtomicInteger(0);
+
+        try (Stream<Path> found = SystemUtil.findFiles(dir, (path, attributes) -> visited.incrementAndGet() > 0, 1)) {
+            assertThat(found.findFirst().isPresent(), is(true));
+            Thread.sleep(200);
+            assertThat(visited.get(), is(lessThan(total)));
+        }
+        assertThat(ParallelTree.POOL.awaitQuiescence(5, SECONDS), is(true));
+        assertThat(visited.get(), is(lessThan(total)));
+    }
+
+    @Test
+    void copyTree_shouldCopyAndSyncWithAttributes(@TempDir final Path dir) throws Exception {
+        final Path source = dir.resolve("source");
+        for (int i = 0; i < 5; i++) {
+            Files.write(Files.createDirectories(source.resolve("sub" + i)).resolve("file.txt"), ("content" + i).getBytes(UTF_8));
+        }
+        final Path script = Files.write(source.resolve("run.sh"), new byte[2048]);
+        Files.setPosixFilePermissions(script, Set.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE));
+        Files.createSymbolicLink(source.resolve("link"), Paths.get("run.sh"));
+        final Path target = dir.resolve("target");
+
+        final TreeResult copied = SystemUtil.copyTree(source, target);
+        assertThat(copied.isSuccess(), is(true));
+        assertThat(copied.getFiles(), is(7L));
+        assertThat(copied.getDirectories(), is(6L));
+        assertThat(copied.getBytes(), is(2048L + 5 * 8));
+        assertThat(SystemUtil.readFile(target.resolve("sub3").resolve("file.txt")), is(equalTo("content3")));
+        assertThat(Files.getPosixFilePermissions(target.resolve("run.sh")), is(equalTo(Set.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE))));
+        assertThat(Files.getLastModifiedTime(target.resolve("run.sh")), is(equalTo(Files.getLastModifiedTime(script))));
+        assertThat(Files.readSymbolicLink(target.resolve("link")), is(equalTo(Paths.get("run.sh"))));
+
+        Files.write(source.resolve("sub1").resolve("file.txt"), "changed".getBytes(UTF_8));
+        final TreeResult synced = SystemUtil.syncTree(source, target);
+        assertThat(synced.isSuccess(), is(true));
+        assertThat(synced.getSkipped(), is(5L));
+        assertThat(synced.getFiles(), is(2L));
+        assertThat(SystemUtil.readFile(target.resolve("sub1").resolve("file.txt")), is(equalTo("changed")));
+
+        final Path outside = Files.write(dir.resolve("outside.txt"), "outside".getBytes(UTF_8));
+        Files.delete(target.resolve("sub2").resolve("file.txt"));
+        Files.createSymbolicLink(target.resolve("sub2").resolve("file.txt"), outside);
+        final Path readOnly = Files.write(source.resolve("sub4").resolve("file.txt"), "read only".getBytes(UTF_8));
+        Files.setPosixFilePermissions(readOnly, Set.of(OWNER_READ));
+        Files.write(source.resolve("sub2").resolve("file.txt"), "replaced".getBytes(UTF_8));
+        assertThat(SystemUtil.syncTree(source, target).isSuccess(), is(true));
+        Files.setLastModifiedTime(readOnly, FileTime.fromMillis(Files.getLastModifiedTime(readOnly).toMillis() + 10_000));
+        assertThat(SystemUtil.syncTree(source, target).isSuccess(), is(true));
+        assertThat(SystemUtil.readFile(outside), is(equalTo("outside")));
+        assertThat(Files.isSymbolicLink(target.resolve("sub2").resolve("file.txt")), is(false));
+        assertThat(SystemUtil.readFile(target.resolve("sub2").resolve("file.txt")), is(equalTo("replaced")));
+        assertThat(SystemUtil.readFile(target.resolve("sub4").resolve("file.txt")), is(equalTo("read only")));
+        try (Stream<Path> files = Files.list(target.resolve("sub4"))) {
+            assertThat(files.count(), is(1L));
+        }
+
+        assertThat(SystemUtil.copyTree(script, dir.resolve("single").resolve("run.sh")).getFiles(), is(1L));
+        assertThat(SystemUtil.copyTree(dir.resolve("missing"), target).isSuccess(), is(false));
+        final TreeResult nested = SystemUtil.copyTree(source, source.resolve("sub0").resolve("copy"));
+        assertThat(nested.isSuccess(), is(false));
+        assertThat(nested.getFailures().keySet(), contains(source));
+        assertThat(Files.exists(source.resolve("sub0").resolve("copy")), is(false));
+        assertThat(SystemUtil.syncTree(source, source).isSuccess(), is(false));
+    }
+
+    @Test
+    void which_shouldResolveFromCachedPathIndex(@TempDir final Path dir) throws Exception {
+        final Path first = Files.createDirectories(dir.resolve("first"));
+        final Path second = Files.createDirectories(dir.resolve("second"));
+        final Path tool = Files.write(second.resolve("tool"), "#!/bin/sh".getBytes(UTF_8));
+        Files.write(first.resolve("tool"), "not executable".getBytes(UTF_8));
+        Files.setPosixFilePermissions(tool, Set.of(OWNER_READ, OWNER_EXECUTE));
+        final PathIndex index = new PathIndex(first + File.pathSeparator + second + File.pathSeparator + dir.resolve("missing")).checkIntervalMs(0);
+
+        assertThat(index.directories().size(), is(3));
+        assertThat(index.which("tool").orElse(null), is(equalTo(tool)));
+        assertThat(index.which("tool").orElse(null), is(equalTo(tool)));
+        assertThat(index.which(tool.toString()).orElse(null), is(equalTo(tool)));
+        assertThat(index.which("other").isPresent(), is(false));
+        assertThat(index.hits(), is(1L));
+        assertThat(index.misses(), is(3L));
+
+        final Path other = Files.write(first.resolve("other"), "#!/bin/sh".getBytes(UTF_8));
+        Files.setPosixFilePermissions(other, Set.of(OWNER_READ, OWNER_EXECUTE));
+        Files.setLastModifiedTime(first, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        assertThat(index.which(List.of("other", "tool", "missing")), is(equalTo(Map.of("other", other, "tool", tool))));
+        assertThat(index.invalidations(), is(1L));
+
+        assertThat(SystemUtil.which("sh").isPresent(), is(true));
+        assertThat(SystemUtil.which(List.of("sh", "not-a-tool-on-path")).keySet(), contains("sh"));
+    }
+
+    private static void tarEntry(final OutputStream out, final String name, final char type, final byte[] content, final String link) throws IOException {
+        final byte[] header = new byte[512];
+        System.arraycopy(name.getBytes(UTF_8), 0, header, 0, name.length());
+        System.arraycopy(String.format("%07o", 0644).getBytes(US_ASCII), 0, header, 100, 7);
+        System.arraycopy(String.format("%011o", content.length).getBytes(US_ASCII), 0, header, 124, 11);
+        System.arraycopy(String.format("%011o", System.currentTimeMillis() / 1000).getBytes(US_ASCII), 0, header, 136, 11);
+        header[156] = (byte) type;
+        System.arraycopy(link.getBytes(UTF_8), 0, header, 157, link.length());
+        out.write(header);
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
     private boolean isOneOf(final OsType os, final OsType... osTypes) {
         for (OsType type : osTypes) {
             if (os == type) {
@@ -1,12 +1,22 @@
 package berlin.yuna.clu.logic;
 
 
+import berlin.yuna.clu.model.LimitViolation;
+import berlin.yuna.clu.model.ProcessMetrics;
+import berlin.yuna.clu.util.ProcessSampler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static berlin.yuna.clu.model.OsType.OS_LINUX;
 import static berlin.yuna.clu.model.OsType.OS_WINDOWS;
@@ -17,7 +27,10 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 @Tag("UnitTest")
 class TerminalTest {
@@ -147,6 +160,110 @@ class TerminalTest {
         assertThat(terminal.toString(), is(notNullValue()));
     }
 
+    @Test
+    void execute_shouldRecordMetrics() {
+        final var listened = new AtomicReference<ProcessMetrics>();
+        assertThat(terminal.metrics(), is(nullValue()));
+        terminal.consumerMetrics(listened::set).metricsIntervalMs(10).execute("i=0; while [ $i -lt 20000 ]; do i=$((i+1)); done; echo done");
+
+        final ProcessMetrics metrics = terminal.metrics();
+        assertThat(metrics, is(notNullValue()));
+        assertThat(listened.get(), is(metrics));
+        assertThat(metrics.getPid(), is(terminal.process().pid()));
+        assertThat(metrics.getCommand(), containsString("echo done"));
+        assertThat(metrics.getDurationMs(), is(greaterThanOrEqualTo(0L)));
+        if (ProcessSampler.isSupported()) {
+            assertThat(metrics.getSamples(), is(greaterThan(0)));
+            assertThat(metrics.getPeakRssBytes(), is(greaterThan(0L)));
+            assertThat(metrics.getProcessCount(), is(greaterThan(0)));
+        }
+        assertThat(metrics.toString(), containsString("peakRssBytes"));
+    }
+
+    @Test
+    void execute_withCommandShorterThanInterval_shouldReportUnknownCpuTime() {
+        terminal.metricsIntervalMs(60000).execute("i=0; while [ $i -lt 100000 ]; do i=$((i+1)); done");
+
+        final ProcessMetrics metrics = terminal.metrics();
+        assertThat(metrics, is(notNullValue()));
+        assertThat(metrics.getDurationMs(), is(greaterThan(0L)));
+        if (ProcessSampler.isSupported()) {
+            assertThat(metrics.getUserCpuMs(), is(-1L));
+            assertThat(metrics.getSystemCpuMs(), is(-1L));
+            assertThat(metrics.getCpuMs(), is(-1L));
+        }
+    }
+
+    @Test
+    void addLimits_shouldWrapCommandOnLinuxOnly() {
+        assumeTrue(SystemUtil.which(List.of("nice", "taskset", "prlimit")).size() == 3, "nice, taskset or prlimit not installed");
+        terminal.nice(10).cpuAffinity(0).memoryLimitBytes(1024 * 1024 * 512).cpuTimeLimitSec(5);
+        final String[] command = terminal.addExecutor(OS_LINUX, "ls");
+
+        assertThat(terminal.addLimits(OS_WINDOWS, command), is(command));
+        assertThat(terminal.addLimits(OS_LINUX, command), is(new String[]{
+                "nice", "-n", "10",
+                "taskset", "-c", "0",
+                "prlimit", "--as=536870912", "--cpu=5:6", "--",
+                "sh", "-c", "ls"
+        }));
+        assertThat(new Terminal().addLimits(OS_LINUX, command), is(command));
+    }
+
+    @Test
+    void execute_withCpuTimeLimit_shouldReportViolation() {
+        assumeTrue(SystemUtil.which("nice").isPresent(), "nice not installed");
+        terminal.nice(5).execute("nice");
+        assertThat(terminal.limitViolation(), is(LimitViolation.NONE));
+        if (SystemUtil.OS == OS_LINUX) {
+            assertThat(terminal.consoleInfo(), containsString("5"));
+            terminal.clearConsole().cpuTimeLimitSec(1).execute("while :; do :; done");
+            assertThat(terminal.status(), is(not(0)));
+            assertThat(terminal.limitViolation(), is(LimitViolation.CPU_TIME));
+        }
+    }
+
+    @Test
+    void directExec_shouldSkipShellForSimpleCommands() {
+        assertThat(terminal.directExec(), is(false));
+        assertThat(terminal.directCommand("echo  Howdy"), is(new String[]{SystemUtil.which("echo").orElseThrow().toString(), "Howdy"}));
+        assertThat(terminal.directCommand("echo $HOME"), is(nullValue()));
+        assertThat(terminal.directCommand("echo a | cat"), is(nullValue()));
+        assertThat(terminal.directCommand("not-a-tool-on-path"), is(nullValue()));
+        assertThat(terminal.directCommand(" "), is(nullValue()));
+
+        terminal.directExec(true).execute("echo Howdy");
+        assertThat(terminal.status(), is(0));
+        assertThat(terminal.consoleInfo(), containsString("Howdy"));
+        terminal.execute("echo shell > /dev/null && echo piped");
+        assertThat(terminal.consoleInfo(), containsString("piped"));
+    }
+
+    @Test
+    void collectOutput_whenDisabled_shouldOnlyStreamToConsumers() {
+        final List<String> lines = new CopyOnWriteArrayList<>();
+        final Terminal streaming = new Terminal().collectOutput(false).consumerInfoStream(lines::add);
+        assertThat(Terminal.copyOf(streaming).collectOutput(), is(false));
+        streaming.execute("echo Howdy");
+        assertThat(streaming.status(), is(0));
+        assertThat(String.join("", lines), containsString("Howdy"));
+        assertThat(streaming.consoleInfo(), is(""));
+        assertThat(streaming.messageCount(), is(0));
+    }
+
+    @Test
+    void directExec_withRelativePath_shouldResolveAgainstDir(@TempDir final Path dir) throws IOException {
+        assumeTrue(SystemUtil.OS != OS_WINDOWS, "Requires a posix shell script");
+        final Path script = Files.writeString(dir.resolve("hello.sh"), "#!/bin/sh\necho from script\n");
+        assertThat(script.toFile().setExecutable(true), is(true));
+        assertThat(terminal.dir(dir).directCommand("./hello.sh now"), is(new String[]{dir.resolve("./hello.sh").toString(), "now"}));
+        assertThat(terminal.directCommand("./missing.sh"), is(nullValue()));
+
+        terminal.directExec(true).execute("./hello.sh");
+        assertThat(terminal.status(), is(0));
+        assertThat(terminal.consoleInfo(), containsString("from script"));
+    }
+
     @Test
     void copyOf_shouldCopyTerminal() {
         final Terminal input = new Terminal().waitFor(10);
@@ -155,6 +272,8 @@ class TerminalTest {
         input.consumerInfoStream(System.out::println);
         input.consumerErrorStream(System.err::println);
         input.timeoutMs(256);
+        input.metricsIntervalMs(42);
+        input.directExec(true).nice(7).cpuAffinity(0, 1).memoryLimitBytes(4096).cpuTimeLimitSec(3);
         final Terminal output = Terminal.copyOf(input);
 
         assertThat(input, is(not(equalTo(output))));
@@ -164,7 +283,13 @@ class TerminalTest {
         assertThat(input.status(), is(equalTo(output.status())));
         assertThat(input.timeoutMs(), is(equalTo(output.timeoutMs())));
         assertThat(input.waitFor(), is(equalTo(output.waitFor())));
+        assertThat(input.metricsIntervalMs(), is(equalTo(output.metricsIntervalMs())));
+        assertThat(input.nice(), is(equalTo(output.nice())));
+        assertThat(input.cpuAffinity(), is(equalTo(output.cpuAffinity())));
+        assertThat(input.memoryLimitBytes(), is(equalTo(output.memoryLimitBytes())));
+        assertThat(input.cpuTimeLimitSec(), is(equalTo(output.cpuTimeLimitSec())));
         assertThat(input.breakOnError(), is(equalTo(output.breakOnError())));
+        assertThat(input.directExec(), is(equalTo(output.directExec())));
         assertThat((input.consoleInfo() + input.consoleError()).length(),
                 is(not((output.consoleInfo() + output.consoleError()).length())));
         assertThat(input.consoleInfoList().size(), is(not(output.consoleInfoList().size())));
@@ -0,0 +1,77 @@
+package berlin.yuna.clu.logic;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Tag("UnitTest")
+class WorkspaceTest {
+
+    @Test
+    void acquire_shouldPreferMemoryAndRecycleDirectories(@TempDir final Path dir) throws IOException {
+        try (final Workspace workspace = new Workspace(dir.resolve("shm"), dir.resolve("disk")).poolSize(1)) {
+            final Workspace.Scratch first = workspace.acquire();
+            assertThat(first.memory(), is(true));
+            assertThat(first.path().startsWith(workspace.memoryRoot()), is(true));
+            Files.write(first.path().resolve("file.txt"), new byte[1024]);
+            Files.createDirectories(first.path().resolve("sub").resolve("deep"));
+            assertThat(workspace.active(), is(1));
+            assertThat(workspace.memoryUsedBytes(), is(1024L));
+
+            first.close();
+            workspace.awaitCleanup();
+            assertThat(workspace.active(), is(0));
+            final Workspace.Scratch second = workspace.acquire();
+            assertThat(second.path(), is(first.path()));
+            assertThat(workspace.reused(), is(1L));
+            try (final Workspace.Scratch third = workspace.acquire();
+                 final Stream<Path> content = Files.list(second.path())) {
+                assertThat(content.count(), is(0L));
+                assertThat(third.path(), is(not(second.path())));
+                assertThat(workspace.created(), is(2L));
+            }
+            second.close();
+            workspace.awaitCleanup();
+            assertThat(Files.list(workspace.memoryRoot()).count(), is(1L));
+        }
+        assertThat(Files.exists(dir.resolve("shm")), is(true));
+        assertThat(Files.list(dir.resolve("shm")).count(), is(0L));
+    }
+
+    @Test
+    void acquire_shouldFallbackToDiskWhenQuotaIsReached(@TempDir final Path dir) throws IOException {
+        try (final Workspace workspace = new Workspace(dir.resolve("shm"), dir.resolve("disk")).quotaBytes(0)) {
+            final Workspace.Scratch scratch = workspace.acquire();
+            assertThat(scratch.memory(), is(false));
+            assertThat(scratch.path().startsWith(workspace.diskRoot()), is(true));
+            assertThat(workspace.fallbacks(), is(1L));
+        }
+        final Workspace closed = new Workspace(null, dir);
+        closed.close();
+        assertThrows(IllegalStateException.class, closed::acquire);
+        assertThat(SystemUtil.workspace(), is(SystemUtil.workspace()));
+    }
+
+    @Test
+    void close_shouldOnlyDeleteOwnRoot(@TempDir final Path dir) {
+        final Workspace first = new Workspace(dir.resolve("shm"), dir.resolve("disk"));
+        try (final Workspace second = new Workspace(dir.resolve("shm"), dir.resolve("disk"))) {
+            final Workspace.Scratch kept = second.acquire();
+            first.acquire();
+            assertThat(first.memoryRoot(), is(not(second.memoryRoot())));
+            first.close();
+            assertThat(Files.exists(first.memoryRoot()), is(false));
+            assertThat(Files.isDirectory(kept.path()), is(true));
+        }
+    }
+}